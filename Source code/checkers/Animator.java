@@ -0,0 +1,211 @@
+package checkers;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.LinkedList;
+
+import javax.swing.Timer;
+
+import checkers.wrapper.Cell;
+import checkers.wrapper.Piece;
+import checkers.wrapper.Sprite;
+import checkers.wrapper.SpriteCache;
+
+/**
+ * Animator moves pieces smoothly across the board. It is driven by a Swing
+ * Timer, so it runs on the event dispatch thread without ever blocking it.
+ * Moves are queued and animated one after another; each move is made on the
+ * board when its animation ends, after which its callback is run. Animations
+ * can be sped up, or skipped to make all queued moves at once.
+ *
+ * @author 090010514
+ */
+public class Animator implements ActionListener {
+	// time taken to move a piece across one cell at normal speed, in ms
+	private static final double CELL_DURATION = 320;
+
+	private final Board board;
+	private final CheckersApplet applet;
+	private final Timer timer;
+	private final LinkedList<Animation> queue;
+	// the animation in progress, if any
+	private Animation current;
+	// the moving piece, once the current animation has started
+	private Sprite sprite;
+	// time of the last frame, from System.nanoTime()
+	private long lastFrame;
+	private double speed;
+
+	/**
+	 * A queued move.
+	 */
+	private static class Animation {
+		private final Cell from;
+		private final Cell dest;
+		private final Runnable done;
+		// time to wait before the move starts, in ms at normal speed
+		private double delay;
+		// fraction of the move made so far
+		private double progress;
+
+		private Animation(Cell from, Cell dest, long delay, Runnable done) {
+			this.from = from;
+			this.dest = dest;
+			this.delay = delay;
+			this.done = done;
+		}
+	}
+
+	/**
+	 * Create a new animator for a board.
+	 *
+	 * @param board
+	 *            The board on which moves are made.
+	 * @param applet
+	 *            The applet displaying the board.
+	 */
+	public Animator(Board board, CheckersApplet applet) {
+		this.board = board;
+		this.applet = applet;
+		timer = new Timer((int) Constants.ANIMATION_FRAME, this);
+		queue = new LinkedList<Animation>();
+		speed = 1;
+	}
+
+	/**
+	 * Queue the move of the piece in one cell to another cell. Must be called
+	 * on the event dispatch thread.
+	 *
+	 * @param from
+	 *            The cell of the piece to move.
+	 * @param dest
+	 *            A destination cell.
+	 * @param delay
+	 *            Time to wait before the move is animated, in milliseconds
+	 *            at normal speed.
+	 * @param done
+	 *            Run once the move has been made, or null.
+	 */
+	public void animate(Cell from, Cell dest, long delay, Runnable done) {
+		queue.add(new Animation(from, dest, delay, done));
+		if (!timer.isRunning()) {
+			lastFrame = System.nanoTime();
+			timer.start();
+		}
+	}
+
+	/**
+	 * @return true if a move is being animated or waiting to be, false
+	 *         otherwise.
+	 */
+	public boolean isAnimating() {
+		return current != null || !queue.isEmpty();
+	}
+
+	/**
+	 * @return The moving piece, or null if no piece is moving.
+	 */
+	public Sprite getSprite() {
+		return sprite;
+	}
+
+	public double getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * Set the speed of the animations.
+	 *
+	 * @param speed
+	 *            A factor, where 1 is normal speed and 2 is twice as fast.
+	 */
+	public void setSpeed(double speed) {
+		this.speed = speed;
+	}
+
+	/**
+	 * Make all queued moves at once, without animating them. Moves queued by
+	 * their callbacks, e.g. the next move of a replay, are animated as usual.
+	 */
+	public void skip() {
+		int pending = queue.size() + (current != null ? 1 : 0);
+		// moves queued by the callbacks are added after the pending ones
+		for (int i = 0; i < pending && isAnimating(); i++) {
+			if (current == null)
+				current = queue.poll();
+			finish();
+		}
+		if (!isAnimating())
+			timer.stop();
+	}
+
+	/**
+	 * Drop all queued moves without making them, e.g. when a new game is
+	 * started.
+	 */
+	public void cancel() {
+		queue.clear();
+		current = null;
+		sprite = null;
+		timer.stop();
+	}
+
+	/**
+	 * Advance the animation by one frame. Invoked by the timer.
+	 */
+	public void actionPerformed(ActionEvent evt) {
+		long now = System.nanoTime();
+		double elapsed = (now - lastFrame) / 1e6 * speed;
+		lastFrame = now;
+		if (current == null) {
+			current = queue.poll();
+			if (current == null) {
+				timer.stop();
+				return;
+			}
+		}
+		if (current.delay > 0) {
+			current.delay -= elapsed;
+			return;
+		}
+		SpriteCache sprites = board.getSpriteCache();
+		// the sprite is made again if the board has been resized
+		if (sprite == null || sprite.getCache() != sprites) {
+			Piece piece = board.get(current.from);
+			if (piece == null) {
+				// nothing to move, e.g. a damaged replay file
+				finish();
+				return;
+			}
+			sprite = new Sprite(piece, current.from, sprites);
+		}
+		int cells = Math.abs(current.dest.getRow() - current.from.getRow());
+		current.progress += elapsed / (CELL_DURATION * cells);
+		if (current.progress >= 1) {
+			finish();
+			return;
+		}
+		int fromX = sprites.getColX(current.from.getCol());
+		int fromY = sprites.getRowY(current.from.getRow());
+		int destX = sprites.getColX(current.dest.getCol());
+		int destY = sprites.getRowY(current.dest.getRow());
+		sprite.setX(fromX + (int) Math.round((destX - fromX) * current.progress));
+		sprite.setY(fromY + (int) Math.round((destY - fromY) * current.progress));
+		applet.repaint(sprite);
+	}
+
+	/**
+	 * Make the move of the current animation, if its piece is still there,
+	 * and run its callback.
+	 */
+	private void finish() {
+		Animation finished = current;
+		current = null;
+		sprite = null;
+		if (board.get(finished.from) != null)
+			board.move(finished.from, finished.dest);
+		applet.repaintChanges();
+		if (finished.done != null)
+			finished.done.run();
+	}
+}
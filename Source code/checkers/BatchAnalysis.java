@@ -0,0 +1,230 @@
+package checkers;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import checkers.ai.Engine;
+import checkers.ai.JsonLinesSearchLogger;
+import checkers.ai.SearchListener;
+import checkers.wrapper.Move;
+
+/**
+ * Command line tool which analyses a file of positions, one per line (see
+ * PositionFormat), spreading the work over several worker threads. A JSON
+ * object is written to the output file for every position as soon as its
+ * analysis is finished, so the output is not in the order of the input. A
+ * position which can not be analysed gets an error on its output line, and
+ * the other positions are still analysed.
+ *
+ * @author 090010514
+ */
+public class BatchAnalysis {
+	private final int depth;
+	private final long timeLimit;
+	// each worker thread has its own engine
+	private final ThreadLocal<Engine> engines;
+	// added to every engine, or null
+	private volatile SearchListener searchLogger;
+
+	/**
+	 * Create a new batch analysis.
+	 *
+	 * @param depth
+	 *            The depth to search every position to.
+	 * @param timeLimit
+	 *            The time limit per position in milliseconds, or 0 for none.
+	 */
+	public BatchAnalysis(int depth, long timeLimit) {
+		this.depth = depth;
+		this.timeLimit = timeLimit;
+		engines = new ThreadLocal<Engine>() {
+			protected Engine initialValue() {
+				Engine engine = new Engine();
+				if (searchLogger != null)
+					engine.addSearchListener(searchLogger);
+				return engine;
+			}
+		};
+	}
+
+	/**
+	 * Set a listener, such as a JsonLinesSearchLogger, to be added to the
+	 * engines of the worker threads. Must be set before analysing.
+	 *
+	 * @param logger
+	 *            A search listener shared by all worker threads, or null.
+	 */
+	public void setSearchLogger(SearchListener logger) {
+		searchLogger = logger;
+	}
+
+	/**
+	 * Analyse all positions of an input file.
+	 *
+	 * @param input
+	 *            A file with a position on each line. Empty lines and lines
+	 *            starting with '#' are skipped.
+	 * @param output
+	 *            The file to write the results to.
+	 * @param workers
+	 *            The number of worker threads.
+	 * @throws IOException
+	 *             If a reading or writing error occurs.
+	 */
+	public void analyse(File input, File output, int workers)
+			throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		CompletionService<String> results = new ExecutorCompletionService<String>(
+				executor);
+		PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(
+				output)));
+		try {
+			int submitted = submit(input, results);
+			for (int i = 0; i < submitted; i++) {
+				out.println(results.take().get());
+				out.flush();
+			}
+		} catch (InterruptedException e) {
+			throw new IOException("Analysis interrupted");
+		} catch (ExecutionException e) {
+			throw new IOException("Analysis failed: " + e.getCause());
+		} finally {
+			executor.shutdownNow();
+			out.close();
+		}
+	}
+
+	/**
+	 * Read the input file and submit a task for every position.
+	 *
+	 * @return The number of tasks submitted.
+	 */
+	private int submit(File input, CompletionService<String> results)
+			throws IOException {
+		BufferedReader in = new BufferedReader(new FileReader(input));
+		int submitted = 0;
+		try {
+			String line;
+			int lineNumber = 0;
+			while ((line = in.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#"))
+					continue;
+				final String position = line;
+				final int number = lineNumber;
+				results.submit(new Callable<String>() {
+					public String call() {
+						try {
+							return analyse(number, position);
+						} catch (RuntimeException e) {
+							return error(number, e.toString());
+						}
+					}
+				});
+				submitted++;
+			}
+		} finally {
+			in.close();
+		}
+		return submitted;
+	}
+
+	/**
+	 * Analyse a single position.
+	 *
+	 * @return The result as a JSON object.
+	 */
+	private String analyse(int lineNumber, String line) {
+		GamePosition position;
+		try {
+			position = PositionFormat.parse(line);
+		} catch (IllegalArgumentException e) {
+			return error(lineNumber, e.getMessage());
+		}
+		StringBuilder sb = new StringBuilder("{\"line\":").append(lineNumber);
+		Engine engine = engines.get();
+		Move best = engine.search(position, depth, timeLimit);
+		sb.append(",\"position\":").append(
+				quote(PositionFormat.toFen(position)));
+		if (best == null) {
+			sb.append(",\"best\":null");
+		} else {
+			sb.append(",\"best\":\"").append(best).append('"');
+			sb.append(",\"score\":").append(engine.getScore());
+			sb.append(",\"pv\":[");
+			ArrayList<Move> variation = engine.getPrincipalVariation(position);
+			for (int i = 0; i < variation.size(); i++) {
+				if (i > 0)
+					sb.append(',');
+				sb.append('"').append(variation.get(i)).append('"');
+			}
+			sb.append(']');
+		}
+		sb.append(",\"depth\":").append(engine.getStatistics().getIterations());
+		sb.append(",\"nodes\":").append(
+				engine.getStatistics().getTotalNodes());
+		return sb.append('}').toString();
+	}
+
+	/**
+	 * @return The result of a position which could not be analysed, as a JSON
+	 *         object.
+	 */
+	private static String error(int lineNumber, String message) {
+		return "{\"line\":" + lineNumber + ",\"error\":"
+				+ quote(String.valueOf(message)) + "}";
+	}
+
+	private static String quote(String str) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c == '"' || c == '\\')
+				sb.append('\\');
+			if (c < ' ')
+				sb.append(' ');
+			else
+				sb.append(c);
+		}
+		return sb.append('"').toString();
+	}
+
+	/**
+	 * Runs a batch analysis. Usage:
+	 *
+	 * <pre>
+	 * BatchAnalysis &lt;positions file&gt; &lt;output file&gt; [depth] [time per position in ms] [workers]
+	 * </pre>
+	 *
+	 * The searches are logged as JSON lines if the checkers.searchLog system
+	 * property is set (see JsonLinesSearchLogger.fromSystemProperties).
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: BatchAnalysis <positions> <output>"
+					+ " [depth] [time ms] [workers]");
+			return;
+		}
+		int depth = args.length > 2 ? Integer.parseInt(args[2])
+				: Constants.SEARCH_DEPTH;
+		long time = args.length > 3 ? Long.parseLong(args[3]) : 0;
+		int workers = args.length > 4 ? Integer.parseInt(args[4]) : Runtime
+				.getRuntime().availableProcessors();
+		BatchAnalysis analysis = new BatchAnalysis(depth, time);
+		analysis.setSearchLogger(JsonLinesSearchLogger.fromSystemProperties());
+		analysis.analyse(new File(args[0]), new File(args[1]), workers);
+	}
+}
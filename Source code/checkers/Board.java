@@ -3,18 +3,20 @@ package checkers;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Scanner;
 
+import checkers.jfr.BoardRenderEvent;
 import checkers.wrapper.Cell;
-import checkers.wrapper.GameStyle;
 import checkers.wrapper.Move;
 import checkers.wrapper.Piece;
 import checkers.wrapper.Player;
+import checkers.wrapper.Sprite;
+import checkers.wrapper.SpriteCache;
 
 /**
  * The Board class is mainly used to graphically represent a game position. It
@@ -29,17 +31,44 @@ public class Board extends GamePosition {
 	public static final int DEFAULT_HEIGHT = DEFAULT_CELL_HEIGHT * Constants.COLS;
 	public static final Dimension DEFAULT_DIMENSIONS = new Dimension(
 			DEFAULT_WIDTH, DEFAULT_HEIGHT);
+	// the smallest the cells are made when the board is resized
+	public static final int MIN_CELL_SIZE = 16;
 
 	private CheckersApplet applet;
-	private BufferedImage board;
-	// BufferedImage onto which the green suggestion squares are drawn.
-	private BufferedImage suggestionBoard;
+	// width and height of a cell on screen, in pixels
+	private int cellSize;
+	// images of the pieces at the current cell size
+	private SpriteCache sprites;
+	// the screen the buffer and sprites were made for, or null
+	private GraphicsConfiguration configuration;
 	// Buffered imagine onto which the displayed board is drawn.
 	private BufferedImage buffer;
+	// what each cell of the buffer shows, so only changed cells are redrawn
+	private Piece[] drawnPieces;
+	private boolean[] drawnGreen;
+	// whether every cell of the buffer must be redrawn
+	private boolean bufferInvalid;
+	// bounds of the sprite last drawn into the buffer, or null
+	private Rectangle drawnSprite;
+	// the cells the last picked up piece can move to, one bit per cell
+	private long suggested;
+	/*
+	 * The cells each piece can move to in the position with key
+	 * suggestionKey, indexed like drawnPieces. suggestionsFound has a bit set
+	 * for every cell whose entry has been filled in.
+	 */
+	private long[] suggestions;
+	private long suggestionsFound;
+	private long suggestionKey;
 	// logs the moves of a player.
 	private BoardLogger logger;
-	private Piece lastPicked;
-	private Cell lastLocation;
+	private Sprite lastPicked;
+	// keys of the positions reached in this game, to detect draws
+	private PositionHistory history;
+	// whether a man has moved or a piece been captured this turn
+	private boolean progress;
+	// shows moves made by the AI and in replays
+	private Animator animator;
 
 	/**
 	 * Create a new board to be displayed in a given CheckersApplet.
@@ -51,43 +80,123 @@ public class Board extends GamePosition {
 		super();
 		this.applet = applet;
 		logger = new BoardLogger();
-		paintBoard();
-		suggestionBoard = buffer = new BufferedImage(DEFAULT_WIDTH,
-				DEFAULT_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		history = new PositionHistory(Integer.getInteger(
+				Constants.NO_PROGRESS_PROPERTY, Constants.NO_PROGRESS_MOVES));
+		animator = new Animator(this, applet);
+		cellSize = DEFAULT_CELL_WIDTH;
+		drawnPieces = new Piece[Constants.ROWS * Constants.COLS];
+		drawnGreen = new boolean[Constants.ROWS * Constants.COLS];
+		suggestions = new long[Constants.ROWS * Constants.COLS];
+		createBuffer();
 	}
 
 	/**
-	 * Start a new game with a three move opening.
+	 * Fit the board into an area of the screen. The back buffer and the
+	 * images of the pieces are only made again if the cell size or the
+	 * screen has changed.
 	 * 
-	 * @param applet
-	 *            The applet in which the opening is performed.
+	 * @param width
+	 *            The width of the area in pixels.
+	 * @param height
+	 *            The height of the area in pixels.
+	 * @return true if the size of the board has changed, false otherwise.
+	 */
+	public boolean resize(int width, int height) {
+		int size = Math.max(Math.min(width / Constants.COLS, height
+				/ Constants.ROWS), MIN_CELL_SIZE);
+		if (size == cellSize && configuration == getConfiguration())
+			return false;
+		cellSize = size;
+		createBuffer();
+		return true;
+	}
+
+	/**
+	 * Make the back buffer and the images of the pieces for the current cell
+	 * size, compatible with the screen if the board is displayed.
+	 */
+	private void createBuffer() {
+		GraphicsConfiguration gc = getConfiguration();
+		int width = cellSize * Constants.COLS;
+		int height = cellSize * Constants.ROWS;
+		if (gc == null)
+			buffer = new BufferedImage(width, height,
+					BufferedImage.TYPE_INT_RGB);
+		else
+			buffer = gc.createCompatibleImage(width, height);
+		sprites = new SpriteCache(cellSize, gc);
+		configuration = gc;
+		bufferInvalid = true;
+		drawnSprite = null;
+		lastPicked = null;
+	}
+
+	private GraphicsConfiguration getConfiguration() {
+		return applet == null ? null : applet.getGraphicsConfiguration();
+	}
+
+	/**
+	 * @return The width and height of a cell on screen, in pixels.
+	 */
+	public int getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * @return The images of the pieces at the current size of the board.
 	 */
-	public void threeMoveOpening(CheckersApplet applet) {
-		newGame(applet);
+	public SpriteCache getSpriteCache() {
+		return sprites;
+	}
+
+	/**
+	 * Start a new game with a three move opening.
+	 */
+	public void threeMoveOpening() {
+		newGame();
 		ThreeMoveOpening.doRandomOpening(this);
 		setCurrentPlayer(Player.ABOVE);
 		setHasCapture(hasCapture());
+		resetHistory();
+	}
+
+	@Override
+	public void newGame() {
+		super.newGame();
+		// the log of a game starts from the starting position
+		logger.setLog("");
+		resetHistory();
 	}
 
 	/**
-	 * Paint the board (i.e. the cells with no pieces) onto the BufferedImage
-	 * board.
+	 * Start the history of positions afresh from the current position.
 	 */
-	private void paintBoard() {
-		board = new BufferedImage(DEFAULT_WIDTH, DEFAULT_HEIGHT,
-				BufferedImage.TYPE_INT_RGB);
-		Graphics g = board.getGraphics();
-		g.setColor(Constants.BOARD_COLOR_1);
-		g.fillRect(0, 0, DEFAULT_WIDTH, DEFAULT_HEIGHT);
-		g.setColor(Constants.BOARD_COLOR_2);
-		for (int row = 0; row < Constants.ROWS; row++) {
-			for (int col = 0; col < Constants.COLS; col++) {
-				if (isBlackCell(row, col))
-					g.fillRect(col * DEFAULT_CELL_WIDTH, row
-							* DEFAULT_CELL_HEIGHT, DEFAULT_CELL_WIDTH,
-							DEFAULT_CELL_HEIGHT);
-			}
-		}
+	private void resetHistory() {
+		history.clear();
+		history.push(getKey(), true);
+		progress = false;
+	}
+
+	/**
+	 * @return The positions reached in this game.
+	 */
+	public PositionHistory getHistory() {
+		return history;
+	}
+
+	/**
+	 * @return Whether the game is drawn by repetition or by the number of
+	 *         moves made without progress.
+	 */
+	public boolean isDraw() {
+		return history.isDraw();
+	}
+
+	@Override
+	public void nextTurn() {
+		super.nextTurn();
+		history.push(getKey(), progress);
+		progress = false;
 	}
 
 	/**
@@ -110,91 +219,253 @@ public class Board extends GamePosition {
 		return row >= 0 && row < Constants.ROWS && col >= 0 && col < Constants.COLS;
 	}
 
+	/**
+	 * Get the cell at a given point.
+	 * 
+	 * @param x
+	 *            An x-coordinate.
+	 * @param y
+	 *            A y-coordinate.
+	 * @return The cell containing the point, or null if the point is not on
+	 *         the board.
+	 */
 	public Cell getCellAtPoint(int x, int y) {
-		return new Cell(y / DEFAULT_CELL_HEIGHT, x / DEFAULT_CELL_WIDTH);
+		if (x < 0 || y < 0)
+			return null;
+		return Cell.get(y / cellSize, x / cellSize);
 	}
 
-	public Piece pickUpPieceFrom(int x, int y) {
+	/**
+	 * Pick up the piece at a given point.
+	 * 
+	 * @param x
+	 *            An x-coordinate.
+	 * @param y
+	 *            A y-coordinate.
+	 * @return A sprite for the piece at the point, or null if there is none.
+	 */
+	public Sprite pickUpPieceFrom(int x, int y) {
 		Cell cell = getCellAtPoint(x, y);
+		if (cell == null)
+			return null;
 		Piece piece = get(cell);
-		if (piece != null && piece.contains(x, y))
-			return piece;
+		if (piece == null)
+			return null;
+		Sprite sprite = new Sprite(piece, cell, sprites);
+		if (sprite.contains(x, y))
+			return sprite;
 		else
 			return null;
 	}
 
-	public void animateMove(Move move) {
-		Piece piece = move.getPiece();
-		Cell dest = move.getDestination();
-		int destRow = dest.getRow();
-		int destCol = dest.getCol();
-		move(piece, destRow, destCol, true);
+	/**
+	 * Queue the animation of a move, which is made once it has been shown.
+	 * 
+	 * @param move
+	 *            A String representation of a move.
+	 * @param delay
+	 *            Time to wait before the move is animated, in milliseconds.
+	 * @param done
+	 *            Run once the move has been made, or null.
+	 * @throws IllegalArgumentException
+	 *             If the move is malformed.
+	 */
+	public void animateMove(String move, long delay, Runnable done) {
+		String[] cellStr = move.split("-");
+		Cell from = null;
+		Cell dest = null;
+		try {
+			from = Cell.fromCellNumber(Integer.parseInt(cellStr[0].trim()));
+			dest = Cell.fromCellNumber(Integer.parseInt(cellStr[1].trim()));
+		} catch (RuntimeException e) {
+		}
+		if (from == null || dest == null)
+			throw new IllegalArgumentException("Malformed move: " + move);
+		animator.animate(from, dest, delay, done);
 	}
 
-	@Override
-	public void move(Piece piece, int destRow, int destCol, boolean animated) {
-		logger.log(piece, destRow, destCol);
-		super.move(piece, destRow, destCol, animated);
+	/**
+	 * Queue the animation of a move, which is made once it has been shown.
+	 * 
+	 * @param move
+	 *            A move.
+	 * @param done
+	 *            Run once the move has been made, or null.
+	 */
+	public void animateMove(Move move, Runnable done) {
+		animator.animate(move.getFrom(), move.getDestination(), 0, done);
 	}
 
-	public BufferedImage getImage() {
-		return getImage(null);
+	/**
+	 * @return The animator showing the moves made on this board.
+	 */
+	public Animator getAnimator() {
+		return animator;
 	}
 
-	public BufferedImage getImage(Piece p) {
-		return getImage(p, false);
+	@Override
+	public void move(Cell from, Cell dest) {
+		logger.log(from, dest);
+		if (!get(from).isKing() || Math.abs(from.getRow() - dest.getRow()) == 2)
+			progress = true;
+		super.move(from, dest);
 	}
 
-	public BufferedImage getImage(Piece p, boolean suggestMove) {
-		Graphics g = buffer.getGraphics();
+	/**
+	 * @return The back buffer, as last brought up to date by render.
+	 */
+	public BufferedImage getImage() {
+		return buffer;
+	}
+
+	/**
+	 * Bring the back buffer up to date. Only the cells which have changed
+	 * since the buffer was last drawn, and the cells under the sprite drawn
+	 * then, are redrawn, so dragging or animating a piece redraws a few cells
+	 * rather than the whole board.
+	 * 
+	 * @param p
+	 *            A picked up or animated piece to draw over the board, or
+	 *            null.
+	 * @param suggestMove
+	 *            Whether to colour the cells the piece can move to green.
+	 * @return The region of the buffer which has changed, or null if nothing
+	 *         has.
+	 */
+	public Rectangle render(Sprite p, boolean suggestMove) {
+		BoardRenderEvent event = new BoardRenderEvent();
+		event.begin();
 		if (p == null)
-			g.drawImage(board, 0, 0, applet);
-		else {
-			if (suggestMove)
-				suggestMoves(p, g);
-			else {
-				g.drawImage(board, 0, 0, applet);
-				p.draw(g);
+			suggestMove = false;
+		if (suggestMove && p != lastPicked) {
+			suggested = getSuggestions(p.getCell());
+			lastPicked = p;
+		}
+		Graphics g = buffer.getGraphics();
+		Rectangle dirty = null;
+		int cellsDrawn = 0;
+		for (int row = 0; row < Constants.ROWS; row++) {
+			for (int col = 0; col < Constants.COLS; col++) {
+				int index = row * Constants.COLS + col;
+				Piece piece = get(row, col);
+				if (p != null && p.getCell().getRow() == row
+						&& p.getCell().getCol() == col)
+					piece = null;
+				boolean green = suggestMove && (suggested & 1L << index) != 0;
+				int x = col * cellSize;
+				int y = row * cellSize;
+				if (!bufferInvalid
+						&& piece == drawnPieces[index]
+						&& green == drawnGreen[index]
+						&& (drawnSprite == null || !drawnSprite.intersects(x,
+								y, cellSize, cellSize)))
+					continue;
+				drawCell(g, row, col, piece, green);
+				drawnPieces[index] = piece;
+				drawnGreen[index] = green;
+				dirty = add(dirty, new Rectangle(x, y, cellSize, cellSize));
+				cellsDrawn++;
 			}
 		}
-		drawPieces(g);
-		return buffer;
+		bufferInvalid = false;
+		drawnSprite = null;
+		if (p != null) {
+			p.draw(g);
+			drawnSprite = new Rectangle(p.getX(), p.getY(),
+					p.getRadius() * 2, p.getRadius() * 2);
+			dirty = add(dirty, drawnSprite);
+		}
+		g.dispose();
+		if (event.shouldCommit()) {
+			event.pickedUp = p != null;
+			event.suggestMoves = suggestMove;
+			event.cellsDrawn = cellsDrawn;
+			event.commit();
+		}
+		if (dirty != null)
+			dirty = dirty.intersection(new Rectangle(0, 0, buffer.getWidth(),
+					buffer.getHeight()));
+		return dirty == null || dirty.isEmpty() ? null : dirty;
+	}
+
+	private static Rectangle add(Rectangle dirty, Rectangle r) {
+		if (dirty == null)
+			return r;
+		dirty.add(r);
+		return dirty;
+	}
+
+	/**
+	 * Draw a cell and the piece in it onto a graphics context.
+	 */
+	private void drawCell(Graphics g, int row, int col, Piece piece,
+			boolean green) {
+		if (green)
+			g.setColor(Color.GREEN);
+		else if (isBlackCell(row, col))
+			g.setColor(Constants.BOARD_COLOR_2);
+		else
+			g.setColor(Constants.BOARD_COLOR_1);
+		g.fillRect(col * cellSize, row * cellSize, cellSize, cellSize);
+		if (piece != null)
+			sprites.draw(g, piece, sprites.getColX(col), sprites.getRowY(row));
 	}
 
-	private void suggestMoves(Piece p, Graphics g) {
-		if (p == lastPicked && p.getCell() == lastLocation) {
-			g.drawImage(suggestionBoard, 0, 0, applet);
-			return;
+	/**
+	 * Get the cells the piece in a cell can move to. The moves are only
+	 * generated the first time a cell is asked for in a position, so picking
+	 * pieces up again does not generate them again until a move is made.
+	 * 
+	 * @return A bit mask with the bit of each destination cell set.
+	 */
+	private long getSuggestions(Cell cell) {
+		/*
+		 * In the middle of a multiple capture only the capturing piece may
+		 * move, and the key does not tell which piece that is, so nothing is
+		 * cached.
+		 */
+		if (doubleCaptureAvailible()) {
+			if (!cell.equals(getLastUsedToCapture()))
+				return 0;
+			return findSuggestions(cell);
 		}
-		Graphics suggestionG = suggestionBoard.getGraphics();
-		suggestionG.drawImage(board, 0, 0, applet);
-		ArrayList<Move> captures = getValidCaptures(p);
-		if (captures != null && captures.size() > 0) {
-			for (Move capture : captures) {
-				Cell dest = capture.getDestination();
-				paintCellGreen(suggestionG, dest);
-			}
-		} else if (!getHasCapture()) {
-			ArrayList<Move> moves = getValidMoves(p.getRow(), p.getCol());
-			if (moves != null && moves.size() > 0) {
-				for (Move move : moves) {
-					Cell dest = move.getDestination();
-					paintCellGreen(suggestionG, dest);
-				}
-			}
+		long key = getKey() ^ (getHasCapture() ? 1 : 0);
+		if (key != suggestionKey) {
+			suggestionKey = key;
+			suggestionsFound = 0;
+		}
+		int index = cell.getRow() * Constants.COLS + cell.getCol();
+		if ((suggestionsFound & 1L << index) == 0) {
+			suggestions[index] = findSuggestions(cell);
+			suggestionsFound |= 1L << index;
 		}
-		lastPicked = p;
-		lastLocation = p.getCell();
-		g.drawImage(suggestionBoard, 0, 0, applet);
+		return suggestions[index];
 	}
 
-	private void paintCellGreen(Graphics g, Cell dest) {
-		int x = dest.getCol() * DEFAULT_CELL_WIDTH;
-		int y = dest.getRow() * DEFAULT_CELL_HEIGHT;
-		g.setColor(Color.GREEN);
-		g.fillRect(x, y, DEFAULT_CELL_WIDTH, DEFAULT_CELL_HEIGHT);
+	/**
+	 * Generate the moves of the piece in a cell.
+	 * 
+	 * @return A bit mask with the bit of each destination cell set.
+	 */
+	private long findSuggestions(Cell cell) {
+		long mask = 0;
+		ArrayList<Move> moves = getValidCaptures(cell);
+		if ((moves == null || moves.size() == 0) && !getHasCapture())
+			moves = getValidMoves(cell.getRow(), cell.getCol());
+		if (moves != null) {
+			for (Move move : moves) {
+				Cell dest = move.getDestination();
+				mask |= 1L << dest.getRow() * Constants.COLS + dest.getCol();
+			}
+		}
+		return mask;
 	}
 
+	/**
+	 * @return The game in the text format of saved games, with a line for
+	 *         each square followed by the current player, the game style and
+	 *         whether multiple captures are allowed.
+	 */
 	public String getSaveFile() {
 		StringBuilder sb = new StringBuilder();
 		int cellNumber = 1;
@@ -222,62 +493,96 @@ public class Board extends GamePosition {
 		return sb.toString();
 	}
 
+	/**
+	 * Save the game in the binary format of SaveFormat, including the moves
+	 * made so far.
+	 * 
+	 * @param file
+	 *            The file to save the game to.
+	 * @throws IOException
+	 *             If a writing error occurs.
+	 */
 	public void saveFile(File file) throws IOException {
-		FileWriter out = new FileWriter(file);
-		out.append(getSaveFile());
-		out.close();
+		SaveFormat.write(file, getSavedGame());
 	}
 
-	public void loadFile(File file) {
-		int row = 0;
-		int col = 0;
-		try {
-			Scanner in = new Scanner(file);
-			for (row = 0; row < Constants.ROWS; row++) {
-				for (col = 0; col < Constants.COLS; col++) {
-					if (isBlackCell(row, col)) {
-						// skip integer (cell number)
-						in.nextInt();
-						String cur = in.next();
-						if (cur.equals("N")) {
-							set(row, col, null);
-							continue;
-						}
-						Player player;
-						if (cur.startsWith("A")) {
-							player = Player.ABOVE;
-						} else {
-							player = Player.BELOW;
-						}
-						Piece p = new Piece(player, row, col, applet);
-						set(row, col, p);
-						if (cur.length() == 2)
-							p.makeKing();
-					}
-				}
-			}
-			String playerStr = in.next();
-			Player player = Player.fromString(playerStr);
-			setCurrentPlayer(player);
-			String gameStyleStr = in.next();
-			GameStyle gameStyle = GameStyle.fromString(gameStyleStr);
-			applet.setGameStyle(gameStyle);
-			applet.setAllowMultiCapture(in.nextBoolean());
-			in.close();
-		} catch (IOException e) {
-			applet.theFrame.reportError("Error at: " + new Cell(row, col),
-					"Error");
-		}
-		setHasCapture(hasCapture());
-		applet.updateStatusMessage();
+	/**
+	 * @return A copy of the game as it would be saved, which may be written
+	 *         on another thread.
+	 */
+	public SaveFormat.SavedGame getSavedGame() {
+		return new SaveFormat.SavedGame(clone(), applet.getGameStyle(),
+				getAllowMultiCapture(), logger.getLog());
 	}
 
 	/**
+	 * Load a saved game in either the binary or the text format.
 	 * 
 	 * @param file
+	 *            A saved game.
 	 * @throws IOException
+	 *             If a reading error occurs or the file is not a valid saved
+	 *             game, in which case the board is left unchanged.
+	 */
+	public void loadFile(File file) throws IOException {
+		load(SaveFormat.read(file));
+	}
+
+	/**
+	 * Set the board up as a saved game.
+	 * 
+	 * @param game
+	 *            A saved game.
+	 */
+	public void load(SaveFormat.SavedGame game) {
+		copyFrom(game.getPosition());
+		logger.setLog(game.getMoves());
+		resetHistory();
+		applet.setAllowMultiCapture(game.getAllowMultiCapture());
+		applet.setGameStyle(game.getGameStyle());
+		applet.updateStatusMessage();
+	}
+
+	/**
+	 * Check if the moves logged lead from the starting position to the current
+	 * one, which is not the case for a game loaded from a file which was saved
+	 * without all of its moves, e.g. in the text format.
+	 * 
+	 * @return Whether a replay of the logged moves covers the whole game.
+	 */
+	public boolean hasFullLog() {
+		GamePosition start = new GamePosition();
+		start.newGame();
+		start.setAllowMultiCapture(getAllowMultiCapture());
+		String log = logger.getLog().trim();
+		if (log.length() > 0)
+			try {
+				for (String move : log.split("\\s+"))
+					start.playMove(move);
+			} catch (IllegalArgumentException e) {
+				return false;
+			}
+		return start.getKey() == getKey();
+	}
+
+	/**
+	 * Replace the moves logged, e.g. when the board is brought to a position
+	 * of a replay.
+	 * 
+	 * @param moves
+	 *            The moves leading from the starting position to the current
+	 *            one, separated by spaces.
+	 */
+	public void setLog(String moves) {
+		logger.setLog(moves);
+	}
+
+	/**
+	 * Get the moves logged for a replay and start a new log.
+	 * 
+	 * @return The moves logged, separated by spaces.
 	 */
-	public void saveLog(File file) throws IOException {
-		logger.save(file);
+	public String takeLog() {
+		return logger.takeLog();
 	}
 }
@@ -1,12 +1,12 @@
 package checkers;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 
 import checkers.wrapper.Cell;
-import checkers.wrapper.Move;
-import checkers.wrapper.Piece;
 
 /**
  * Logs the moves of a game.
@@ -20,29 +20,62 @@ public class BoardLogger {
 		log = new StringBuilder();
 	}
 
-	public void log(Piece piece, int destRow, int destCol) {
-		log(piece, new Cell(destRow, destCol));
+	public void log(Cell from, Cell dest) {
+		log.append(from.getCellNumber());
+		log.append('-');
+		log.append(dest.getCellNumber());
+		log.append(' ');
 	}
 
-	public void log(Piece piece, Cell dest) {
-		log(new Move(piece, dest));
+	/**
+	 * @return The moves logged, separated by spaces.
+	 */
+	public String getLog() {
+		return log.toString();
 	}
 
-	private void log(Move m) {
-		log.append(m);
-		log.append(' ');
+	/**
+	 * Replace the moves logged, e.g. when a saved game is loaded.
+	 * 
+	 * @param moves
+	 *            Moves separated by spaces.
+	 */
+	public void setLog(String moves) {
+		log = new StringBuilder(moves);
 	}
 
 	public void save(File file) throws IOException {
-		FileWriter out;
+		String moves = takeLog();
+		write(file, moves);
+	}
+
+	/**
+	 * Get the moves logged and start a new log.
+	 * 
+	 * @return The moves logged, separated by spaces.
+	 */
+	public String takeLog() {
+		String moves = log.toString();
+		log = new StringBuilder();
+		return moves;
+	}
+
+	/**
+	 * Write moves to a replay file.
+	 * 
+	 * @param file
+	 *            The file to write to.
+	 * @param moves
+	 *            Moves separated by spaces.
+	 * @throws IOException
+	 *             If a writing error occurs.
+	 */
+	public static void write(File file, String moves) throws IOException {
+		Writer out = new BufferedWriter(new FileWriter(file));
 		try {
-			out = new FileWriter(file);
-			out.append(log);
-			out.close();
-		} catch (IOException e) {
-			throw e;
+			out.append(moves);
 		} finally {
-			log = new StringBuilder();
+			out.close();
 		}
 	}
 }
@@ -3,23 +3,39 @@ package checkers;
 import java.awt.CheckboxMenuItem;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
+import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.JApplet;
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
 
+import checkers.ai.Engine;
+import checkers.ai.SearchListener;
+import checkers.ai.SearchStatistics;
+import checkers.jfr.AIMoveEvent;
+import checkers.metrics.EngineMetrics;
+import checkers.metrics.MetricsRegistry;
 import checkers.wrapper.Cell;
 import checkers.wrapper.GameStyle;
-import checkers.wrapper.Move;
 import checkers.wrapper.Piece;
+import checkers.wrapper.Move;
 import checkers.wrapper.Player;
+import checkers.wrapper.Sprite;
 
 /**
  * The CheckersApplet class presents the board to the user, lets the user move
@@ -28,22 +44,49 @@ import checkers.wrapper.Player;
  * @author 090010514
  */
 public class CheckersApplet extends JApplet implements MouseMotionListener,
-		MouseListener {
+		MouseListener, SearchListener {
 	private static final long serialVersionUID = 1L;
-	public static final Dimension DIMENSIONS = new Dimension(
-			Board.DEFAULT_WIDTH - 10, Board.DEFAULT_HEIGHT - 10);
+	public static final Dimension DIMENSIONS = Board.DEFAULT_DIMENSIONS;
 	public Board board;
 	CheckersFrame theFrame;
 
 	// Variables relating to a piece being picked up from the board
-	private Piece pickedUp;
+	private Sprite pickedUp;
 	private int xOffset;
 	private int yOffset;
-	private int startX;
-	private int startY;
 
 	private GameStyle gameStyle;
 	private boolean allowMultiCapture;
+	// chooses the moves of the AI
+	private Engine engine;
+	// records the AI's searches and finished games
+	private EngineMetrics metrics;
+	/*
+	 * summary of the search of the last AI move, shown in the status field;
+	 * set on the event dispatch thread when the move is played
+	 */
+	private volatile String searchSummary;
+	// summary of the last search finished, only used on the AI thread
+	private String lastSearch;
+	// runs the AI's searches, one at a time, off the event dispatch thread
+	private ExecutorService aiThread;
+	// whether the AI is choosing a move
+	private boolean thinking;
+	// counts the games started, so moves of an abandoned game are ignored
+	private int game;
+	// search of the position after the predicted reply, while the user thinks
+	private Future<ArrayList<Move>> ponder;
+	// key of the position being pondered
+	private long ponderKey;
+	// cancel the pondering search, and the search for the AI's move
+	private AtomicBoolean ponderCancelled;
+	private AtomicBoolean searchCancelled;
+	// the replay being shown, or null if a game is being played
+	private Replay replay;
+	// the number of moves of the replay made on the board
+	private int replayPly;
+	// whether the replay is being played through
+	private boolean replayPlaying;
 
 	/**
 	 * Create a new CheckersApplet
@@ -56,6 +99,17 @@ public class CheckersApplet extends JApplet implements MouseMotionListener,
 		this.theFrame = theFrame;
 		gameStyle = GameStyle.PVC;
 		allowMultiCapture = true;
+		engine = new Engine();
+		engine.addSearchListener(this);
+		metrics = new EngineMetrics(MetricsRegistry.getDefault());
+		engine.addSearchListener(metrics);
+		aiThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "AI");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
 		init();
 	}
 
@@ -76,27 +130,15 @@ public class CheckersApplet extends JApplet implements MouseMotionListener,
 	}
 
 	/**
-	 * Loads a saved game from a given File.
-	 * 
-	 * @param file
-	 *            A file containing information about a saved game.
-	 * @throws IOException
-	 *             If a reading error occurs.
-	 */
-	public void loadGame(File file) throws IOException {
-		board.loadFile(file);
-	}
-
-	/**
-	 * Saves the current game to the given File.
+	 * Continues a saved game, which has been read from a file.
 	 * 
-	 * @param file
-	 *            The file to which the current game should be saved.
-	 * @throws IOException
-	 *             If a writing error occurs.
+	 * @param game
+	 *            A saved game.
 	 */
-	public void saveGame(File file) throws IOException {
-		board.saveFile(file);
+	public void loadGame(SaveFormat.SavedGame game) {
+		abandonSearch();
+		board.load(game);
+		repaint();
 	}
 
 	/**
@@ -107,6 +149,14 @@ public class CheckersApplet extends JApplet implements MouseMotionListener,
 		board = new Board(this);
 		addMouseMotionListener(this);
 		addMouseListener(this);
+		addComponentListener(new ComponentAdapter() {
+			public void componentResized(ComponentEvent evt) {
+				if (board.resize(getWidth(), getHeight())) {
+					pickedUp = null;
+					repaint();
+				}
+			}
+		});
 		newGame();
 	}
 
@@ -114,7 +164,9 @@ public class CheckersApplet extends JApplet implements MouseMotionListener,
 	 * Set up the pieces in preparation for a new game to begin.
 	 */
 	public void newGame() {
-		board.newGame(this);
+		abandonSearch();
+		searchSummary = null;
+		board.newGame();
 		repaint();
 		// set the status message
 		updatePlayersTurn();
@@ -127,7 +179,8 @@ public class CheckersApplet extends JApplet implements MouseMotionListener,
 	 * random first moves.
 	 */
 	public void newThreeMoveGame() {
-		board.threeMoveOpening(this);
+		abandonSearch();
+		board.threeMoveOpening();
 		repaint();
 		updatePlayersTurn();
 		if (timeForAI())
@@ -163,36 +216,60 @@ public class CheckersApplet extends JApplet implements MouseMotionListener,
 	 * Paint the board onto the graphics context of this applet.
 	 */
 	public void paint(Graphics g) {
-		g.drawImage(board.getImage(), 0, 0, this);
+		if (pickedUp != null)
+			board.render(pickedUp, true);
+		else
+			board.render(board.getAnimator().getSprite(), false);
+		BufferedImage image = board.getImage();
+		g.drawImage(image, 0, 0, this);
+		// clear the rest of the applet, which the board does not fill
+		g.clearRect(image.getWidth(), 0, getWidth() - image.getWidth(),
+				getHeight());
+		g.clearRect(0, image.getHeight(), image.getWidth(), getHeight()
+				- image.getHeight());
+	}
+
+	/**
+	 * Repaint the cells of the board which have changed, e.g. after a move.
+	 */
+	public void repaintChanges() {
+		repaint(null, false);
 	}
 
 	/**
-	 * Repaint the board and specifically repaint the given Piece. Invoked when
+	 * Repaint the board and specifically repaint the given Sprite. Invoked when
 	 * animating AI moves.
 	 * 
 	 * @param p
-	 *            A piece.
+	 *            A sprite.
 	 */
-	public void repaint(Piece p) {
+	public void repaint(Sprite p) {
 		repaint(p, false);
 	}
 
 	/**
-	 * Repaint the board and specifically repaint the given Piece. Invoked when
+	 * Repaint the board and specifically repaint the given Sprite. Invoked when
 	 * a human player picks up a piece. Outlines the squared which this piece
 	 * can move to (if any) in green if the suggestMove parameter is true.
 	 * 
 	 * @param p
-	 *            A piece.
+	 *            A sprite.
 	 * @param suggestMove
 	 *            Whether or not to outline the squares this piece can move to
 	 *            in green.
 	 */
-	public void repaint(Piece p, boolean suggestMove) {
+	public void repaint(Sprite p, boolean suggestMove) {
+		Rectangle dirty = board.render(p, suggestMove);
+		if (dirty == null)
+			return;
 		Graphics g = getGraphics();
 		if (g == null)
 			return;
-		g.drawImage(board.getImage(p, suggestMove), 0, 0, this);
+		int x2 = dirty.x + dirty.width;
+		int y2 = dirty.y + dirty.height;
+		g.drawImage(board.getImage(), dirty.x, dirty.y, x2, y2, dirty.x,
+				dirty.y, x2, y2, this);
+		g.dispose();
 	}
 
 	/**
@@ -201,16 +278,15 @@ public class CheckersApplet extends JApplet implements MouseMotionListener,
 	 */
 	public void mousePressed(MouseEvent evt) {
 		// do not process right mouse button
-		if (evt.isMetaDown() || board.isGameOver())
+		if (evt.isMetaDown() || board.isGameOver() || thinking
+				|| board.getAnimator().isAnimating() || replay != null)
 			return;
 		int x = evt.getX();
 		int y = evt.getY();
 		pickedUp = board.pickUpPieceFrom(x, y);
 		if (pickedUp != null) {
-			startX = pickedUp.getX();
-			startY = pickedUp.getY();
-			xOffset = startX - x;
-			yOffset = startY - y;
+			xOffset = pickedUp.getX() - x;
+			yOffset = pickedUp.getY() - y;
 			repaint(pickedUp, true);
 		}
 	}
@@ -239,18 +315,21 @@ public class CheckersApplet extends JApplet implements MouseMotionListener,
 		int x = evt.getX();
 		int y = evt.getY();
 		Cell cell = board.getCellAtPoint(x, y);
-		if (!board.getHasCapture() && board.isValidMove(pickedUp, cell)) {
-			board.move(pickedUp, cell);
+		Cell from = pickedUp.getCell();
+		if (cell == null) {
+			resetPickedUp();
+		} else if (!board.getHasCapture() && board.isValidMove(from, cell)) {
+			board.move(from, cell);
 			nextTurn();
-		} else if (board.isValidCapture(pickedUp, cell)) {
-			board.move(pickedUp, cell);
+		} else if (board.isValidCapture(from, cell)) {
+			board.move(from, cell);
 			if (!board.doubleCaptureAvailible())
 				nextTurn();
 		} else {
 			resetPickedUp();
 		}
-		repaint();
 		pickedUp = null;
+		repaintChanges();
 	}
 
 	/**
@@ -260,10 +339,8 @@ public class CheckersApplet extends JApplet implements MouseMotionListener,
 	 */
 	public void resetPickedUp() {
 		if (pickedUp != null) {
-			pickedUp.setX(startX);
-			pickedUp.setY(startY);
-			repaint();
 			pickedUp = null;
+			repaintChanges();
 		}
 	}
 
@@ -273,10 +350,18 @@ public class CheckersApplet extends JApplet implements MouseMotionListener,
 	 * to save the game for replay.
 	 */
 	public void gameOver() {
-		theFrame.setMsg(board.getCurrentPlayer().opposite()
-				+ " has won the game!");
-		// if game is loaded, do not ask to save replay
-		if (theFrame.isGameLoaded())
+		metrics.gameCompleted();
+		if (board.getHistory().isRepetitionDraw())
+			theFrame.setMsg("The game is drawn by repetition.");
+		else if (board.getHistory().isNoProgressDraw())
+			theFrame.setMsg("The game is drawn: "
+					+ board.getHistory().getNoProgressMoves()
+					+ " moves without progress.");
+		else
+			theFrame.setMsg(board.getCurrentPlayer().opposite()
+					+ " has won the game!");
+		// if game is loaded without all its moves, do not ask to save replay
+		if (theFrame.isGameLoaded() && !board.hasFullLog())
 			return;
 		int option = JOptionPane.showConfirmDialog(theFrame,
 				"Do you want to save this game for replay?", "Save replay?",
@@ -285,40 +370,133 @@ public class CheckersApplet extends JApplet implements MouseMotionListener,
 			FileChooser fc = new FileChooser(".rpl", "Replay file (.rpl)");
 			option = fc.showSaveDialog(theFrame);
 			if (option == FileChooser.APPROVE_OPTION) {
-				File file = fc.getSelectedFile();
-				try {
-					board.saveLog(file);
-				} catch (IOException e) {
-					theFrame
-							.reportError(
-									"An error occured while attempting to write the replay file.",
-									"Writing error");
-				}
+				theFrame.saveReplay(fc.getSelectedFile(), board.takeLog());
 			}
 		}
 	}
 
 	/**
-	 * Replays a saved game from the given file.
+	 * Shows a replay, which has been read from a file. The replay is played
+	 * through with a pause between moves, and may be paused, stepped through
+	 * or jumped to any move with the replay bar.
 	 * 
-	 * @param file
-	 *            A file containing replay information.
-	 * @throws IOException
-	 *             If a file reading error occurs.
-	 */
-	public void replay(File file) throws IOException {
-		FileInputStream in = new FileInputStream(file);
-		byte[] bytes = new byte[in.available()];
-		in.read(bytes);
-		String[] moves = new String(bytes).split(" ");
-		board.newGame(this);
-		for (String move : moves) {
-			board.animateMove(move);
-			try {
-				Thread.sleep(3000);
-			} catch (InterruptedException e) {
-			}
+	 * @param loaded
+	 *            A replay.
+	 */
+	public void replay(Replay loaded) {
+		abandonSearch();
+		replay = loaded;
+		theFrame.showReplayBar(true);
+		seekReplay(0);
+		setReplayPlaying(true);
+	}
+
+	/**
+	 * Show the position of the replay after a given number of moves at once.
+	 * 
+	 * @param ply
+	 *            A number of moves.
+	 */
+	public void seekReplay(int ply) {
+		if (replay == null)
+			return;
+		board.getAnimator().cancel();
+		replayPly = Math.max(0, Math.min(ply, replay.getLength()));
+		board.copyFrom(replay.getPosition(replayPly));
+		// the moves animated from here on are logged after these
+		StringBuilder log = new StringBuilder();
+		for (int i = 0; i < replayPly; i++)
+			log.append(replay.getMove(i)).append(' ');
+		board.setLog(log.toString());
+		repaint();
+		updateReplay();
+		if (replayPlaying)
+			animateReplay(Constants.REPLAY_PAUSE);
+	}
+
+	/**
+	 * Pause the replay and show the next move, or go back one move.
+	 * 
+	 * @param forward
+	 *            true to show the next move, false to go back.
+	 */
+	public void stepReplay(boolean forward) {
+		if (replay == null)
+			return;
+		replayPlaying = false;
+		if (forward) {
+			seekReplay(replayPly);
+			animateReplay(0);
+		} else {
+			seekReplay(replayPly - 1);
+		}
+	}
+
+	/**
+	 * Play or pause the replay. Pausing shows the position after the last
+	 * move made at once.
+	 * 
+	 * @param playing
+	 *            true to play, false to pause.
+	 */
+	public void setReplayPlaying(boolean playing) {
+		if (replay == null || playing == replayPlaying)
+			return;
+		replayPlaying = playing;
+		if (!playing)
+			seekReplay(replayPly);
+		else if (replayPly == replay.getLength())
+			seekReplay(0);
+		else
+			animateReplay(0);
+		updateReplay();
+	}
+
+	public boolean isReplayPlaying() {
+		return replayPlaying;
+	}
+
+	/**
+	 * Animate the next move of the replay, and then the following ones if
+	 * the replay is playing.
+	 */
+	private void animateReplay(long delay) {
+		if (replayPly == replay.getLength()) {
+			replayPlaying = false;
+			updateReplay();
+			return;
 		}
+		final Replay shown = replay;
+		board.animateMove(replay.getMove(replayPly), delay, new Runnable() {
+			public void run() {
+				if (replay != shown)
+					return;
+				replayPly++;
+				// the board is brought to the exact position after the move
+				board.copyFrom(replay.getPosition(replayPly));
+				updateReplay();
+				if (replayPlaying)
+					animateReplay(Constants.REPLAY_PAUSE);
+			}
+		});
+	}
+
+	private void updateReplay() {
+		theFrame.getReplayBar().update(replayPly, replay.getLength(),
+				replayPlaying);
+		theFrame.setMsg("Replay: move " + replayPly + " of "
+				+ replay.getLength());
+	}
+
+	/**
+	 * Stop showing a replay, if one is being shown.
+	 */
+	private void endReplay() {
+		if (replay == null)
+			return;
+		replay = null;
+		replayPlaying = false;
+		theFrame.showReplayBar(false);
 	}
 
 	/**
@@ -327,6 +505,8 @@ public class CheckersApplet extends JApplet implements MouseMotionListener,
 	 * @return true if it is time for the AI to be called , false otherwise.
 	 */
 	public boolean timeForAI() {
+		if (replay != null)
+			return false;
 		Player p = board.getCurrentPlayer();
 		return gameStyle == GameStyle.CVC
 				|| (gameStyle == GameStyle.PVC && p == Player.ABOVE)
@@ -337,154 +517,274 @@ public class CheckersApplet extends JApplet implements MouseMotionListener,
 	 * Updates whose turn it is in the status bar.
 	 */
 	public void updatePlayersTurn() {
-		theFrame.setMsg(board.getCurrentPlayer() + " to Move");
+		theFrame.setMsg(board.getCurrentPlayer() + " to Move"
+				+ getSearchSummary());
+	}
+
+	/**
+	 * @return A summary of the last AI search to append to the status
+	 *         message, or an empty String if the AI has not moved.
+	 */
+	private String getSearchSummary() {
+		if (searchSummary == null)
+			return "";
+		return " [" + searchSummary + "]";
 	}
 
 	/**
 	 * Determines which move is the best for the current player and executes
-	 * that move.
+	 * that move. The search runs on the AI thread, so the game stays
+	 * responsive (and interruptable when playing computer vs computer), and
+	 * the move is then made on the event dispatch thread. If the position
+	 * was pondered, the result of pondering is used.
 	 */
 	public void doAI() {
-		/*
-		 * Need to run in thread for the game to be interruptable when playing
-		 * computer vs computer.
-		 */
-		SwingUtilities.invokeLater(new Runnable() {
+		if (thinking)
+			return;
+		thinking = true;
+		final int currentGame = game;
+		final Future<ArrayList<Move>> pondered = takePonder();
+		// the search works on copies, as the board may change meanwhile
+		final GamePosition position = board.clone();
+		final PositionHistory history = new PositionHistory();
+		history.copyFrom(board.getHistory());
+		final AIMoveEvent event = new AIMoveEvent();
+		event.begin();
+		final AtomicBoolean cancelled = new AtomicBoolean();
+		searchCancelled = cancelled;
+		aiThread.execute(new Runnable() {
 			public void run() {
-				ArrayList<Move> allMoves = board.getAllValidMoves();
-				if (allMoves.size() == 0) {
-					gameOver();
-					return;
+				ArrayList<Move> variation = null;
+				String summary = null;
+				if (pondered != null) {
+					try {
+						variation = pondered.get();
+						if (variation.size() > 0)
+							summary = "AI " + variation.get(0)
+									+ " (pondered): "
+									+ engine.getStatistics();
+						else
+							variation = null;
+					} catch (InterruptedException e) {
+					} catch (ExecutionException e) {
+					}
 				}
-				Move selected = chooseMove(allMoves);
-				board.animateMove(selected);
-				if (board.doubleCaptureAvailible()) {
-					doAI();
-				} else {
-					nextTurn();
+				if (variation == null) {
+					lastSearch = null;
+					variation = search(position, history, cancelled);
+					summary = lastSearch;
 				}
+				final ArrayList<Move> result = variation;
+				final String resultSummary = summary;
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						// a search of an abandoned game is not shown
+						if (currentGame == game) {
+							if (resultSummary != null)
+								searchSummary = resultSummary;
+							playAIMove(result, event);
+						}
+					}
+				});
 			}
 		});
 	}
 
 	/**
-	 * Switches the current player for the opposite player, updates the status
-	 * field and calls the AI if appropriate.
+	 * Search a position on the AI thread.
+	 * 
+	 * @return The principal variation, starting with the best move, or an
+	 *         empty list if there are no moves.
 	 */
-	public void nextTurn() {
-		board.nextTurn();
-		updateStatusMessage();
-		if (!board.isGameOver() && getGameStyle() != GameStyle.PVP) {
-			if (timeForAI())
-				doAI();
-		}
+	private ArrayList<Move> search(GamePosition position,
+			PositionHistory history, AtomicBoolean cancelled) {
+		Move best = engine.search(position, Constants.SEARCH_DEPTH, 0, history,
+				cancelled);
+		if (best == null)
+			return new ArrayList<Move>();
+		return engine.getPrincipalVariation(position);
 	}
 
 	/**
-	 * Update the status message indicating if the game is over, or whose turn
-	 * it is and whether there is a capture.
+	 * Animate the move chosen by the AI.
+	 * 
+	 * @param variation
+	 *            The principal variation of the AI's search.
+	 * @param event
+	 *            The flight recorder event of the move.
 	 */
-	public void updateStatusMessage() {
-		if (board.getHasCapture()) {
-			theFrame.setMsg(board.getCurrentPlayer()
-					+ " to Move (capture availible)");
-		} else if (board.hasLost()) {
+	private void playAIMove(final ArrayList<Move> variation,
+			final AIMoveEvent event) {
+		if (variation.size() == 0) {
+			thinking = false;
 			gameOver();
-		} else {
-			updatePlayersTurn();
+			return;
 		}
+		board.animateMove(variation.get(0), new Runnable() {
+			public void run() {
+				aiMoveMade(variation, event);
+			}
+		});
 	}
 
 	/**
-	 * Choose a move. Precondition: the list of moves is not empty.
+	 * Continue the game once the AI's move has been made.
 	 * 
-	 * @param moves
-	 *            An array of all possible moves.
-	 * @return The chosen move.
-	 */
-	private Move chooseMove(ArrayList<Move> moves) {
-		int[] posValues = valuateMoves(moves);
-		int max = getMax(posValues);
-		ArrayList<Move> bestMoves = new ArrayList<Move>();
-		for (int i = 0; i < posValues.length; i++) {
-			if (posValues[i] == max) {
-				bestMoves.add(moves.get(i));
-			}
+	 * @param variation
+	 *            The principal variation of the AI's search.
+	 * @param event
+	 *            The flight recorder event of the move.
+	 */
+	private void aiMoveMade(ArrayList<Move> variation, AIMoveEvent event) {
+		thinking = false;
+		Move selected = variation.get(0);
+		if (event.shouldCommit()) {
+			event.player = board.getCurrentPlayer().toString();
+			event.move = selected.toString();
+			event.commit();
+		}
+		if (board.doubleCaptureAvailible()) {
+			doAI();
+		} else {
+			nextTurn();
+			if (!board.isGameOver() && !timeForAI()
+					&& getGameStyle() != GameStyle.PVP)
+				startPonder(variation);
 		}
-		return bestMoves.get(random(bestMoves.size()));
 	}
 
 	/**
-	 * Assign values to moves in an ArrayList of possible moves.
+	 * Start searching the position the AI expects after the user's reply, on
+	 * the AI thread, while the user is thinking.
 	 * 
-	 * @param moves
-	 *            An ArrayList of possible moves for the current player.
-	 * @return An array of integers containing a value of each move in the
-	 *         ArrayList.
-	 */
-	private int[] valuateMoves(ArrayList<Move> moves) {
-		int[] moveValues = new int[moves.size()];
-		for (int i = 0; i < moveValues.length; i++) {
-			moveValues[i] = valueMove(moves.get(i));
+	 * @param variation
+	 *            The principal variation of the AI's last search, starting
+	 *            with the AI's last move.
+	 */
+	private void startPonder(ArrayList<Move> variation) {
+		Player user = board.getCurrentPlayer();
+		GamePosition position = board;
+		final PositionHistory history = new PositionHistory();
+		history.copyFrom(board.getHistory());
+		int i = 1;
+		boolean irreversible = false;
+		while (position.getCurrentPlayer() == user) {
+			if (i >= variation.size())
+				return;
+			Move reply = variation.get(i++);
+			Piece piece = position.get(reply.getFrom());
+			if (piece == null || piece != reply.getPiece())
+				return;
+			irreversible |= !piece.isKing()
+					|| Math.abs(reply.getFrom().getRow()
+							- reply.getDestination().getRow()) == 2;
+			position = position.applyMove(reply);
 		}
-		return moveValues;
+		if (position.isGameOver())
+			return;
+		history.push(position.getKey(), irreversible);
+		final GamePosition predicted = position;
+		ponderKey = predicted.getKey();
+		final AtomicBoolean cancelled = new AtomicBoolean();
+		ponderCancelled = cancelled;
+		ponder = aiThread.submit(new Callable<ArrayList<Move>>() {
+			public ArrayList<Move> call() {
+				// pondering is not a move, so it is not reported
+				engine.removeSearchListener(CheckersApplet.this);
+				engine.removeSearchListener(metrics);
+				try {
+					return search(predicted, history, cancelled);
+				} finally {
+					engine.addSearchListener(CheckersApplet.this);
+					engine.addSearchListener(metrics);
+				}
+			}
+		});
 	}
 
 	/**
-	 * Evaluate a given move.
+	 * Get the pondering search if it searched the current position, otherwise
+	 * stop it.
 	 * 
-	 * @param move
-	 *            A possible move for the current player.
-	 * @return A integer value for the move.
+	 * @return The pondering search, or null if the prediction was wrong.
 	 */
-	private int valueMove(Move move) {
-		GamePosition game = board.applyMove(move);
-		Player player = board.getCurrentPlayer();
-		return game.value2(player) - board.value2(player);
+	private Future<ArrayList<Move>> takePonder() {
+		Future<ArrayList<Move>> pondered = ponder;
+		ponder = null;
+		if (pondered == null)
+			return null;
+		if (!board.doubleCaptureAvailible() && board.getKey() == ponderKey)
+			return pondered;
+		pondered.cancel(false);
+		ponderCancelled.set(true);
+		return null;
 	}
 
 	/**
-	 * Returns the highest value in an array of integers.
-	 * 
-	 * @param posValues
-	 *            An array of integers.
-	 * @return The highest value in the array.
-	 */
-	private int getMax(int[] posValues) {
-		int max = posValues[0];
-		for (int i = 1; i < posValues.length; i++) {
-			if (posValues[i] > max) {
-				max = posValues[i];
-			}
+	 * Stop pondering and ignore the move of any search in progress, e.g.
+	 * because a new game is started. Any replay being shown is ended.
+	 */
+	private void abandonSearch() {
+		board.getAnimator().cancel();
+		endReplay();
+		game++;
+		thinking = false;
+		if (ponder != null) {
+			ponder.cancel(false);
+			ponder = null;
+			ponderCancelled.set(true);
 		}
-		return max;
+		if (searchCancelled != null)
+			searchCancelled.set(true);
 	}
 
 	/**
-	 * Returns a random integer between 0 and max - 1.
-	 * 
-	 * @param max
-	 *            The maximum integer returned, plus one.
-	 * @return A random number between 0 and max - 1.
+	 * Switches the current player for the opposite player, updates the status
+	 * field and calls the AI if appropriate.
+	 */
+	public void nextTurn() {
+		board.nextTurn();
+		if (board.isDraw()) {
+			board.setGameOver(true);
+			gameOver();
+			return;
+		}
+		updateStatusMessage();
+		if (!board.isGameOver() && getGameStyle() != GameStyle.PVP) {
+			if (timeForAI())
+				doAI();
+		}
+	}
+
+	/**
+	 * Update the status message indicating if the game is over, or whose turn
+	 * it is and whether there is a capture.
 	 */
-	private int random(int max) {
-		return random(0, max);
+	public void updateStatusMessage() {
+		if (board.getHasCapture()) {
+			theFrame.setMsg(board.getCurrentPlayer()
+					+ " to Move (capture availible)" + getSearchSummary());
+		} else if (board.hasLost()) {
+			gameOver();
+		} else {
+			updatePlayersTurn();
+		}
 	}
 
 	/**
-	 * Returns a random integer between min and max - 1.
-	 * 
-	 * @param min
-	 *            The minimum integer which can be returned.
-	 * @param max
-	 *            The maximum integer returned, plus one.
-	 * @return A random number between 0 and max - 1.
+	 * Remember a summary of the AI's search, which doAI shows in the status
+	 * field once the move is played. Called on the AI thread.
 	 */
-	private int random(int min, int max) {
-		return (int) (Math.random() * (max - min)) + min;
+	public void searchFinished(Move best, int score,
+			SearchStatistics statistics) {
+		lastSearch = "AI " + best + ": " + statistics;
 	}
 
 	// unused interface methods
+	public void iterationFinished(int depth, int score, Move best,
+			SearchStatistics statistics) {
+	}
+
 	public void mouseMoved(MouseEvent e) {
 	}
 
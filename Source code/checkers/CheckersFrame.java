@@ -7,12 +7,20 @@ package checkers;
  */
 import javax.swing.*;
 
+import checkers.metrics.MetricsRegistry;
+import checkers.metrics.MetricsServer;
 import checkers.wrapper.GameStyle;
 
 import java.awt.*;
 import java.awt.event.*;
 import java.io.File;
-import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import checkers.jfr.ReplayLoadEvent;
 
 public final class CheckersFrame extends JFrame implements WindowListener,
 		ActionListener, ItemListener {
@@ -21,6 +29,10 @@ public final class CheckersFrame extends JFrame implements WindowListener,
 	private CheckersApplet applet;
 	// To communicate with user(s)
 	private JTextField msgField;
+	// Controls for the replay being shown
+	private ReplayBar replayBar;
+	// reads and writes files, one at a time, off the event dispatch thread
+	private ExecutorService ioThread;
 
 	// File-menu items
 	private MenuItem quitItem;
@@ -33,6 +45,8 @@ public final class CheckersFrame extends JFrame implements WindowListener,
 	// Settings-menu Items
 	private MenuItem gameStyleItem;
 	private CheckboxMenuItem allowMultiCapItem;
+	private MenuItem skipAnimationItem;
+	private MenuItem animationSpeedItem;
 
 	// Specifies if a game has been loaded. if that is the case, replay cannot
 	// be saved.
@@ -40,15 +54,22 @@ public final class CheckersFrame extends JFrame implements WindowListener,
 
 	/**
 	 * Constructor which creates a new CheckersFrame. Makes the graphical user
-	 * interface, adds window listeners, sets the position of the window and
-	 * makes it so that the user cannot change its size.
+	 * interface, adds window listeners and sets the position of the window.
+	 * The window may be resized, and the board is scaled to fit it.
 	 */
 	public CheckersFrame() {
 		super(Constants.GAME_NAME);
+		ioThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "I/O");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
 		makeGUI();
 		addWindowListener(this);
 		setLocationRelativeTo(null);
-		setResizable(false);
+		setMinimumSize(getSize());
 	} // end of CheckersFrame constructor
 
 	/*
@@ -62,6 +83,9 @@ public final class CheckersFrame extends JFrame implements WindowListener,
 		add(msgField, BorderLayout.SOUTH);
 		applet = new CheckersApplet(this);
 		add(applet, BorderLayout.CENTER);
+		replayBar = new ReplayBar(applet);
+		replayBar.setVisible(false);
+		add(replayBar, BorderLayout.NORTH);
 
 		makeMenus();
 		pack();
@@ -93,6 +117,12 @@ public final class CheckersFrame extends JFrame implements WindowListener,
 		allowMultiCapItem = new CheckboxMenuItem("Allow multi-capture", true);
 		allowMultiCapItem.addItemListener(this);
 		settings.add(allowMultiCapItem);
+		settings.addSeparator();
+		skipAnimationItem = new MenuItem("Skip animation", new MenuShortcut(
+				KeyEvent.VK_K));
+		settings.add(skipAnimationItem);
+		animationSpeedItem = new MenuItem("Set animation speed");
+		settings.add(animationSpeedItem);
 
 		addActionListeners();
 
@@ -107,7 +137,8 @@ public final class CheckersFrame extends JFrame implements WindowListener,
 	 */
 	private void addActionListeners() {
 		MenuItem[] items = { quitItem, newGameItem, threeMoveItem, loadItem,
-				saveItem, gameStyleItem, replayItem };
+				saveItem, gameStyleItem, replayItem, skipAnimationItem,
+				animationSpeedItem };
 		for (MenuItem item : items) {
 			item.addActionListener(this);
 		}
@@ -122,6 +153,24 @@ public final class CheckersFrame extends JFrame implements WindowListener,
 		msgField.setText(msg);
 	}
 
+	public ReplayBar getReplayBar() {
+		return replayBar;
+	}
+
+	/**
+	 * Show or hide the replay bar.
+	 * 
+	 * @param show
+	 *            true to show the replay bar, false to hide it.
+	 */
+	public void showReplayBar(boolean show) {
+		// the applet ends replays while it is created, before the bar exists
+		if (replayBar == null || replayBar.isVisible() == show)
+			return;
+		replayBar.setVisible(show);
+		validate();
+	}
+
 	/**
 	 * Listens for menu-item-clicks.
 	 */
@@ -142,6 +191,10 @@ public final class CheckersFrame extends JFrame implements WindowListener,
 			replayGame();
 		} else if (source == gameStyleItem) {
 			selectGameStyle();
+		} else if (source == skipAnimationItem) {
+			applet.board.getAnimator().skip();
+		} else if (source == animationSpeedItem) {
+			selectAnimationSpeed();
 		}
 	}
 
@@ -153,14 +206,18 @@ public final class CheckersFrame extends JFrame implements WindowListener,
 		FileChooser fc = new FileChooser(".game", "Saved game (.game)");
 		int option = fc.showOpenDialog(this);
 		if (option == JFileChooser.APPROVE_OPTION) {
-			File file = fc.getSelectedFile();
-			try {
-				applet.loadGame(file);
-				gameLoaded = true;
-			} catch (IOException e) {
-				reportError("A reading error occured: " + e.getMessage(),
-						"Reading error");
-			}
+			final File file = fc.getSelectedFile();
+			runIO("Loading " + file.getName(), true,
+					new Callable<SaveFormat.SavedGame>() {
+						public SaveFormat.SavedGame call() throws Exception {
+							return SaveFormat.read(file);
+						}
+					}, new Completion<SaveFormat.SavedGame>() {
+						public void done(SaveFormat.SavedGame game) {
+							applet.loadGame(game);
+							gameLoaded = true;
+						}
+					});
 		}
 	}
 
@@ -182,16 +239,43 @@ public final class CheckersFrame extends JFrame implements WindowListener,
 		FileChooser fc = new FileChooser(".game", "Saved game (.game)");
 		int option = fc.showSaveDialog(this);
 		if (option == JFileChooser.APPROVE_OPTION) {
-			File file = fc.getSelectedFile();
-			try {
-				applet.saveGame(file);
-			} catch (IOException e) {
-				reportError("A writing error occured: " + e.getMessage(),
-						"Writing error");
-			}
+			final File file = fc.getSelectedFile();
+			// the game is copied now, as it may change while it is written
+			final SaveFormat.SavedGame game = applet.board.getSavedGame();
+			runIO("Saving " + file.getName(), false, new Callable<Object>() {
+				public Object call() throws Exception {
+					SaveFormat.write(file, game);
+					return null;
+				}
+			}, new Completion<Object>() {
+				public void done(Object result) {
+					setMsg("Saved " + file.getName());
+				}
+			});
 		}
 	}
 
+	/**
+	 * Write a replay file in the background.
+	 * 
+	 * @param file
+	 *            The file to write to.
+	 * @param moves
+	 *            The moves of the game, separated by spaces.
+	 */
+	public void saveReplay(final File file, final String moves) {
+		runIO("Saving " + file.getName(), false, new Callable<Object>() {
+			public Object call() throws Exception {
+				BoardLogger.write(file, moves);
+				return null;
+			}
+		}, new Completion<Object>() {
+			public void done(Object result) {
+				setMsg("Saved " + file.getName());
+			}
+		});
+	}
+
 	/**
 	 * Open a window which lets the user choose a game to replay, then, once a
 	 * file is chosen, replay the game in that file.
@@ -200,16 +284,95 @@ public final class CheckersFrame extends JFrame implements WindowListener,
 		FileChooser fc = new FileChooser(".rpl", "Replay (.rpl)");
 		int option = fc.showOpenDialog(this);
 		if (option == JFileChooser.APPROVE_OPTION) {
-			File file = fc.getSelectedFile();
-			try {
-				applet.replay(file);
-			} catch (IOException e) {
-				reportError("A reading error occured: " + e.getMessage(),
-						"Reading error");
-			}
+			final File file = fc.getSelectedFile();
+			final String action = "Loading " + file.getName();
+			runIO(action, true, new Callable<Replay>() {
+				public Replay call() throws Exception {
+					ReplayLoadEvent event = new ReplayLoadEvent();
+					event.begin();
+					Replay replay = new Replay(file, new ProgressListener() {
+						public void progress(long done, long total) {
+							reportProgress(action, done, total);
+						}
+					});
+					if (event.shouldCommit()) {
+						event.file = file.getPath();
+						event.moves = replay.getLength();
+						event.commit();
+					}
+					return replay;
+				}
+			}, new Completion<Replay>() {
+				public void done(Replay replay) {
+					applet.replay(replay);
+				}
+			});
 		}
 	}
 
+	/**
+	 * Work to be done on the event dispatch thread once a file has been read
+	 * or written.
+	 */
+	private interface Completion<T> {
+		void done(T result);
+	}
+
+	/**
+	 * Read or write a file on the I/O thread, so a slow disk does not hang
+	 * the window, then complete the work on the event dispatch thread.
+	 * Errors are reported to the user.
+	 * 
+	 * @param action
+	 *            What is being done, shown in the status bar meanwhile.
+	 * @param reading
+	 *            true if a file is read, false if one is written.
+	 * @param task
+	 *            Reads or writes the file on the I/O thread.
+	 * @param completion
+	 *            Given the result of the task on the event dispatch thread.
+	 */
+	private <T> void runIO(String action, final boolean reading,
+			final Callable<T> task, final Completion<T> completion) {
+		setMsg(action + "...");
+		ioThread.execute(new Runnable() {
+			public void run() {
+				try {
+					final T result = task.call();
+					SwingUtilities.invokeLater(new Runnable() {
+						public void run() {
+							completion.done(result);
+						}
+					});
+				} catch (final Exception e) {
+					SwingUtilities.invokeLater(new Runnable() {
+						public void run() {
+							if (reading)
+								reportError("A reading error occured: "
+										+ e.getMessage(), "Reading error");
+							else
+								reportError("A writing error occured: "
+										+ e.getMessage(), "Writing error");
+						}
+					});
+				}
+			}
+		});
+	}
+
+	/**
+	 * Show the progress of a file operation in the status bar. May be called
+	 * from any thread.
+	 */
+	private void reportProgress(final String action, long done, long total) {
+		final long percent = total > 0 ? Math.min(done * 100 / total, 100) : 0;
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				setMsg(action + "... " + percent + "%");
+			}
+		});
+	}
+
 	/**
 	 * Allows the user to choose the game style.
 	 */
@@ -226,6 +389,20 @@ public final class CheckersFrame extends JFrame implements WindowListener,
 		}
 	}
 
+	/**
+	 * Allows the user to choose the speed of animated moves.
+	 */
+	private void selectAnimationSpeed() {
+		Double[] speeds = { 0.5, 1.0, 2.0, 4.0, 8.0 };
+		Animator animator = applet.board.getAnimator();
+		Object selection = JOptionPane.showInputDialog(this,
+				"Animation speed (times normal)", "Select animation speed",
+				JOptionPane.QUESTION_MESSAGE, null, speeds, animator
+						.getSpeed());
+		if (selection != null)
+			animator.setSpeed((Double) selection);
+	}
+
 	public CheckboxMenuItem getAllowMultiCapItem() {
 		return allowMultiCapItem;
 	}
@@ -275,6 +452,13 @@ public final class CheckersFrame extends JFrame implements WindowListener,
 	}
 
 	public void exit() {
+		// let a file being saved be finished
+		ioThread.shutdown();
+		try {
+			ioThread.awaitTermination(Constants.IO_EXIT_TIMEOUT,
+					TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+		}
 		System.exit(0);
 	}
 
@@ -297,6 +481,16 @@ public final class CheckersFrame extends JFrame implements WindowListener,
 	 * ======================================================================
 	 */
 	public static void main(String args[]) {
+		String metricsPort = System
+				.getProperty(Constants.METRICS_PORT_PROPERTY);
+		if (metricsPort != null) {
+			try {
+				new MetricsServer(MetricsRegistry.getDefault(), Integer
+						.parseInt(metricsPort));
+			} catch (Exception e) {
+				System.err.println("Could not start metrics server: " + e);
+			}
+		}
 		CheckersFrame frame = new CheckersFrame();
 		frame.setVisible(true);
 	} // end of main method
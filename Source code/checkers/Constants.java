@@ -9,9 +9,33 @@ import java.awt.Color;
  */
 public class Constants {
 	/**
-	 * Sleep time between each frame update in animated moves.
+	 * Time between each frame update in animated moves.
 	 */
-	public static final long ANIMATION_SLEEP = 20;
+	public static final long ANIMATION_FRAME = 20;
+	/**
+	 * Time to wait between the moves of a replay, in milliseconds.
+	 */
+	public static final long REPLAY_PAUSE = 3000;
+	/**
+	 * Time to wait for files being saved when quitting, in milliseconds.
+	 */
+	public static final long IO_EXIT_TIMEOUT = 10000;
+	/**
+	 * Number of moves the AI searches ahead before only following captures.
+	 */
+	public static final int SEARCH_DEPTH = 6;
+	/**
+	 * Number of moves each player may make without moving a man or capturing
+	 * before the game is drawn.
+	 */
+	public static final int NO_PROGRESS_MOVES = 40;
+	/**
+	 * Worth of a man, a king and a piece able to capture in the static
+	 * evaluation of a position (see GamePosition.value).
+	 */
+	public static final int MAN_VALUE = 3;
+	public static final int KING_VALUE = 5;
+	public static final int CAPTURE_VALUE = 20;
 	// the title of the game window
 	public static final String GAME_NAME = "Checkers";
 	public static final Color BOARD_COLOR_1 = Color.WHITE;
@@ -21,6 +45,25 @@ public class Constants {
 	// number of columns on the board
 	public static final int COLS = 8;
 
+	// system property giving the port to serve metrics on, if any
+	public static final String METRICS_PORT_PROPERTY = "checkers.metrics.port";
+	/*
+	 * system property giving the address the analysis server listens on; by
+	 * default it only accepts connections from this machine
+	 */
+	public static final String SERVER_ADDRESS_PROPERTY = "checkers.server.address";
+	/*
+	 * system property naming where headless runs log their searches as JSON
+	 * lines: stdout, stderr or a file to append to
+	 */
+	public static final String SEARCH_LOG_PROPERTY = "checkers.searchLog";
+	// system property which, if true, also logs every search iteration
+	public static final String SEARCH_LOG_ITERATIONS_PROPERTY = "checkers.searchLog.iterations";
+	// system property giving the directory WEIGHTS requests may load from
+	public static final String WEIGHTS_DIRECTORY_PROPERTY = "checkers.weights.dir";
+	// system property overriding NO_PROGRESS_MOVES
+	public static final String NO_PROGRESS_PROPERTY = "checkers.noProgressMoves";
+
 	public static final String LINE_SEPARATOR = System
 			.getProperty("line.separator");
 }
@@ -1,6 +1,5 @@
 package checkers;
 
-import java.awt.Graphics;
 import java.util.ArrayList;
 
 import checkers.wrapper.Cell;
@@ -26,8 +25,8 @@ public class GamePosition {
 	private boolean gameOver;
 	// Whether or not the current player has a capture available.
 	private boolean hasCapture;
-	// Piece last used to capture with.
-	private Piece lastUsedToCapture;
+	// Cell of the piece last used to capture with.
+	private Cell lastUsedToCapture;
 	// Whether or not to allow multiple captures in one turn.
 	private boolean allowMultiCapture;
 
@@ -109,39 +108,36 @@ public class GamePosition {
 		setCurrentPlayer(currentPlayer.opposite());
 	}
 
-	public Piece getLastUsedToCapture() {
+	/**
+	 * @return The cell of the piece last used to capture with, or null if the
+	 *         last move was not a capture.
+	 */
+	public Cell getLastUsedToCapture() {
 		return lastUsedToCapture;
 	}
 
 	/**
 	 * Start a new game.
-	 * 
-	 * @param applet
-	 *            The CheckersApplet in which the game is played.
 	 */
-	public void newGame(CheckersApplet applet) {
-		setupPieces(applet);
+	public void newGame() {
+		setupPieces();
 		gameOver = false;
 		hasCapture = false;
+		lastUsedToCapture = null;
 		setCurrentPlayer(Player.BELOW);
 	}
 
 	/**
 	 * Set up the pieces in preparation for a new game.
-	 * 
-	 * @param applet
-	 *            The CheckersApplet in which the game is played.
 	 */
-	public void setupPieces(CheckersApplet applet) {
+	public void setupPieces() {
 		for (int row = 0; row < Constants.ROWS; row++) {
 			for (int col = 0; col < Constants.COLS; col++) {
 				if (Board.isBlackCell(row, col)) {
 					if (row < 3)
-						pieces[row][col] = new Piece(Player.ABOVE, row, col,
-								applet);
+						pieces[row][col] = Piece.ABOVE_MAN;
 					else if (row > Constants.ROWS - 4) {
-						pieces[row][col] = new Piece(Player.BELOW, row, col,
-								applet);
+						pieces[row][col] = Piece.BELOW_MAN;
 					} else {
 						pieces[row][col] = null;
 					}
@@ -207,43 +203,58 @@ public class GamePosition {
 	}
 
 	/**
-	 * Animate a move.
+	 * Move the piece in one cell to another cell.
 	 * 
 	 * @param move
 	 *            A String representation of a move.
 	 */
-	public void animateMove(String move) {
-		move(move, true);
+	public void move(String move) {
+		String[] cellStr = move.split("-");
+		int cellNumber1 = Integer.parseInt(cellStr[0]);
+		int cellNumber2 = Integer.parseInt(cellStr[1]);
+		move(Cell.fromCellNumber(cellNumber1), Cell.fromCellNumber(cellNumber2));
 	}
 
 	/**
-	 * Move the piece in one cell to another cell.
-	 * 
+	 * Play a move as it would be played in a game, i.e. the owner of the moved
+	 * piece becomes the current player and the turn passes to the other player
+	 * unless a further capture is available.
+	 *
 	 * @param move
-	 *            A String representation of a move.
+	 *            A String representation of a move, e.g. "11-15".
+	 * @throws IllegalArgumentException
+	 *             If the move is malformed or there is no piece to move.
 	 */
-	public void move(String move) {
-		move(move, false);
+	public void playMove(String move) {
+		String[] cellStr = move.split("-");
+		if (cellStr.length != 2)
+			throw new IllegalArgumentException("Malformed move: " + move);
+		Cell from;
+		Cell to;
+		try {
+			from = Cell.fromCellNumber(Integer.parseInt(cellStr[0]));
+			to = Cell.fromCellNumber(Integer.parseInt(cellStr[1]));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Malformed move: " + move);
+		}
+		if (from == null || to == null || get(from) == null)
+			throw new IllegalArgumentException("Illegal move: " + move);
+		playMove(from, to);
 	}
 
 	/**
-	 * Move the piece in one cell to another cell.
-	 * 
-	 * @param move
-	 *            A String representation of a move.
-	 * @param animated
-	 *            Whether or not to animate the move of a piece.
+	 * Play a move as it would be played in a game (see playMove(String)).
+	 *
+	 * @param from
+	 *            The cell of the piece to move, which must not be empty.
+	 * @param to
+	 *            A destination cell.
 	 */
-	public void move(String move, boolean animated) {
-		String[] cellStr = move.split("-");
-		int cellNumber1 = Integer.parseInt(cellStr[0]);
-		int cellNumber2 = Integer.parseInt(cellStr[1]);
-		Cell cell1 = Cell.fromCellNumber(cellNumber1);
-		Cell cell2 = Cell.fromCellNumber(cellNumber2);
-		Piece piece = get(cell1);
-		int destRow = cell2.getRow();
-		int destCol = cell2.getCol();
-		move(piece, destRow, destCol, animated);
+	public void playMove(Cell from, Cell to) {
+		setCurrentPlayer(get(from).getPlayer());
+		move(from, to);
+		if (!doubleCaptureAvailible())
+			nextTurn();
 	}
 
 	/**
@@ -253,63 +264,32 @@ public class GamePosition {
 	 *            A move.
 	 */
 	public void move(Move move) {
-		move(move.getPiece(), move.getDestination());
+		move(move.getFrom(), move.getDestination());
 	}
 
 	/**
-	 * Move a piece to another cell.
+	 * Move the piece in one cell to another cell.
 	 * 
-	 * @param piece
-	 *            A piece.
+	 * @param from
+	 *            The cell of the piece to move.
 	 * @param dest
 	 *            A destination cell.
 	 */
-	public void move(Piece piece, Cell dest) {
-		move(piece, dest.getRow(), dest.getCol());
-	}
-
-	/**
-	 * Move a piece to a given row and column.
-	 * 
-	 * @param piece
-	 *            A piece.
-	 * @param destRow
-	 *            The destination row.
-	 * @param destCol
-	 *            The destination column.
-	 */
-	private void move(Piece piece, int destRow, int destCol) {
-		move(piece, destRow, destCol, false);
-	}
-
-	/**
-	 * Move a piece from one cell to another.
-	 * 
-	 * @param piece
-	 *            A piece.
-	 * @param destRow
-	 *            The destination row.
-	 * @param destCol
-	 *            The destination column.
-	 * @param animated
-	 *            Whether or not to animate the move.
-	 */
-	public void move(Piece piece, int destRow, int destCol, boolean animated) {
+	public void move(Cell from, Cell dest) {
 		justMadeKing = false;
-		int oldRow = piece.getRow();
-		int oldCol = piece.getCol();
+		int oldRow = from.getRow();
+		int oldCol = from.getCol();
+		int destRow = dest.getRow();
+		int destCol = dest.getCol();
+		Piece piece = pieces[oldRow][oldCol];
 		pieces[oldRow][oldCol] = null;
 		if (Math.abs(oldRow - destRow) == 2)
-			capture(piece, destRow, destCol);
-		if (animated)
-			piece.animateMove(destRow, destCol);
-		else
-			piece.move(destRow, destCol);
-		pieces[destRow][destCol] = piece;
-		if (piece.shouldBeKing()) {
-			piece.makeKing();
+			capture(from, dest);
+		if (piece.shouldBeKing(destRow)) {
+			piece = piece.makeKing();
 			justMadeKing = true;
 		}
+		pieces[destRow][destCol] = piece;
 	}
 
 	/**
@@ -322,49 +302,70 @@ public class GamePosition {
 	/**
 	 * Capture a piece.
 	 * 
-	 * @param piece
-	 *            The piece used to capture.
-	 * @param destRow
-	 *            The destination row.
-	 * @param destCol
-	 *            The destination column.
-	 */
-	public void capture(Piece piece, int destRow, int destCol) {
-		lastUsedToCapture = piece;
-		int oldRow = piece.getRow();
-		int oldCol = piece.getCol();
-		int captureRow = (oldRow + destRow) / 2;
-		int captureCol = (oldCol + destCol) / 2;
+	 * @param from
+	 *            The cell of the piece used to capture.
+	 * @param dest
+	 *            The destination cell.
+	 */
+	public void capture(Cell from, Cell dest) {
+		lastUsedToCapture = dest;
+		int captureRow = (from.getRow() + dest.getRow()) / 2;
+		int captureCol = (from.getCol() + dest.getCol()) / 2;
 		pieces[captureRow][captureCol] = null;
 	}
 
 	/**
-	 * Draw all the pieces on the board onto a graphics context.
-	 * 
-	 * @param g
-	 *            A graphics context.
+	 * Make this game position a copy of another one, apart from whether
+	 * multiple captures are allowed.
+	 *
+	 * @param position
+	 *            A game position.
 	 */
-	public void drawPieces(Graphics g) {
-		if (pieces == null)
-			return;
-		for (int row = 0; row < Constants.ROWS; row++) {
-			for (int col = 0; col < Constants.COLS; col++) {
-				if (pieces[row][col] != null)
-					pieces[row][col].draw(g);
-			}
-		}
+	public void copyFrom(GamePosition position) {
+		for (int row = 0; row < Constants.ROWS; row++)
+			System.arraycopy(position.pieces[row], 0, pieces[row], 0,
+					Constants.COLS);
+		justMadeKing = position.justMadeKing;
+		currentPlayer = position.currentPlayer;
+		gameOver = position.gameOver;
+		hasCapture = position.hasCapture;
+		lastUsedToCapture = position.lastUsedToCapture;
 	}
 
 	@Override
 	public GamePosition clone() {
-		Piece[][] pieces = new Piece[Constants.ROWS][Constants.COLS];
+		// pieces are immutable, so only the rows need to be copied
+		Piece[][] pieces = new Piece[Constants.ROWS][];
 		for (int row = 0; row < Constants.ROWS; row++)
+			pieces[row] = this.pieces[row].clone();
+		GamePosition position = new GamePosition(pieces, justMadeKing,
+				allowMultiCapture, currentPlayer);
+		position.gameOver = gameOver;
+		position.hasCapture = hasCapture;
+		position.lastUsedToCapture = lastUsedToCapture;
+		return position;
+	}
+
+	/**
+	 * Get the Zobrist hash key of this game position, which is determined by
+	 * the pieces on the board and the current player.
+	 *
+	 * @return A 64-bit key identifying this game position.
+	 */
+	public long getKey() {
+		long key = currentPlayer == Player.ABOVE ? Zobrist.SIDE : 0;
+		int square = 0;
+		for (int row = 0; row < Constants.ROWS; row++) {
 			for (int col = 0; col < Constants.COLS; col++) {
-				if (this.pieces[row][col] != null)
-					pieces[row][col] = this.pieces[row][col].clone();
+				if (Board.isBlackCell(row, col)) {
+					Piece p = pieces[row][col];
+					if (p != null)
+						key ^= Zobrist.get(square, p.getPlayer(), p.isKing());
+					square++;
+				}
 			}
-		return new GamePosition(pieces, justMadeKing, allowMultiCapture,
-				currentPlayer);
+		}
+		return key;
 	}
 
 	/**
@@ -377,7 +378,7 @@ public class GamePosition {
 	 */
 	public GamePosition applyMove(Move move) {
 		GamePosition newPosition = clone();
-		newPosition.move(move.clone());
+		newPosition.move(move);
 		if (!newPosition.doubleCaptureAvailible()) {
 			newPosition.nextTurn();
 		}
@@ -438,12 +439,10 @@ public class GamePosition {
 	 * @return true if a double capture is available, false otherwise.
 	 */
 	public boolean doubleCaptureAvailible() {
-		Piece lastCaptured = getLastUsedToCapture();
+		Cell lastCaptured = getLastUsedToCapture();
 		if (!allowMultiCapture || lastCaptured == null || justMadeKing())
 			return false;
-		int row = lastCaptured.getRow();
-		int col = lastCaptured.getCol();
-		return hasValidCapture(row, col);
+		return hasValidCapture(lastCaptured.getRow(), lastCaptured.getCol());
 	}
 
 	/**
@@ -497,37 +496,23 @@ public class GamePosition {
 		Player player = piece.getPlayer();
 		if (player != getCurrentPlayer())
 			return null;
+		Cell from = Cell.get(row, col);
 		ArrayList<Move> captures = new ArrayList<Move>();
 		if (piece.isKing() || player == Player.BELOW) {
-			Cell leftAbove = new Cell(row - 1, col - 1);
-			if (isCellValidAndEmpty(leftAbove))
-				captures.add(new Move(piece, leftAbove));
-			Cell rightAbove = new Cell(row - 1, col + 1);
-			if (isCellValidAndEmpty(rightAbove))
-				captures.add(new Move(piece, rightAbove));
+			if (isCellValidAndEmpty(row - 1, col - 1))
+				captures.add(new Move(piece, from, Cell.get(row - 1, col - 1)));
+			if (isCellValidAndEmpty(row - 1, col + 1))
+				captures.add(new Move(piece, from, Cell.get(row - 1, col + 1)));
 		}
 		if (piece.isKing() || player == Player.ABOVE) {
-			Cell leftBelow = new Cell(row + 1, col - 1);
-			if (isCellValidAndEmpty(leftBelow))
-				captures.add(new Move(piece, leftBelow));
-			Cell rightBelow = new Cell(row + 1, col + 1);
-			if (isCellValidAndEmpty(rightBelow))
-				captures.add(new Move(piece, rightBelow));
+			if (isCellValidAndEmpty(row + 1, col - 1))
+				captures.add(new Move(piece, from, Cell.get(row + 1, col - 1)));
+			if (isCellValidAndEmpty(row + 1, col + 1))
+				captures.add(new Move(piece, from, Cell.get(row + 1, col + 1)));
 		}
 		return captures;
 	}
 
-	/**
-	 * Determines whether the given cell is valid and empty.
-	 * 
-	 * @param cell
-	 *            A cell.
-	 * @return true if the given cell is valid and empty, false otherwise.
-	 */
-	private boolean isCellValidAndEmpty(Cell cell) {
-		return isCellValidAndEmpty(cell.getRow(), cell.getCol());
-	}
-
 	/**
 	 * Determines whether the given cell is valid and empty.
 	 * 
@@ -595,12 +580,14 @@ public class GamePosition {
 	}
 
 	/**
-	 * Get all valid captures for a given piece.
+	 * Get all valid captures for the piece in a given cell.
 	 * 
-	 * @return All valid captures for the given piece.
+	 * @param cell
+	 *            A cell.
+	 * @return All valid captures for the piece in the given cell.
 	 */
-	public ArrayList<Move> getValidCaptures(Piece p) {
-		return getValidCaptures(p.getRow(), p.getCol());
+	public ArrayList<Move> getValidCaptures(Cell cell) {
+		return getValidCaptures(cell.getRow(), cell.getCol());
 	}
 
 	/**
@@ -619,26 +606,27 @@ public class GamePosition {
 		Player player = piece.getPlayer();
 		if (player != getCurrentPlayer())
 			return null;
+		Cell from = Cell.get(row, col);
 		ArrayList<Move> captures = new ArrayList<Move>();
 		if (piece.isKing() || player == Player.BELOW) {
-			Cell leftAbove = new Cell(row - 2, col - 2);
+			Cell leftAbove = Cell.get(row - 2, col - 2);
 			if (isCellValidAndEnemy(row - 1, col - 1)
 					&& isCellValidAndEmpty(row - 2, col - 2))
-				captures.add(new Move(piece, leftAbove));
-			Cell rightAbove = new Cell(row - 2, col + 2);
+				captures.add(new Move(piece, from, leftAbove));
+			Cell rightAbove = Cell.get(row - 2, col + 2);
 			if (isCellValidAndEnemy(row - 1, col + 1)
 					&& isCellValidAndEmpty(row - 2, col + 2))
-				captures.add(new Move(piece, rightAbove));
+				captures.add(new Move(piece, from, rightAbove));
 		}
 		if (piece.isKing() || player == Player.ABOVE) {
-			Cell leftBelow = new Cell(row + 2, col - 2);
+			Cell leftBelow = Cell.get(row + 2, col - 2);
 			if (isCellValidAndEnemy(row + 1, col - 1)
 					&& isCellValidAndEmpty(row + 2, col - 2))
-				captures.add(new Move(piece, leftBelow));
-			Cell rightBelow = new Cell(row + 2, col + 2);
+				captures.add(new Move(piece, from, leftBelow));
+			Cell rightBelow = Cell.get(row + 2, col + 2);
 			if (isCellValidAndEnemy(row + 1, col + 1)
 					&& isCellValidAndEmpty(row + 2, col + 2))
-				captures.add(new Move(piece, rightBelow));
+				captures.add(new Move(piece, from, rightBelow));
 		}
 		return captures;
 	}
@@ -683,23 +671,26 @@ public class GamePosition {
 	 * Checks whether user selection is a valid move Assumes destRow, destCol
 	 * are not -1 (i.e. there has been a selection).
 	 * 
-	 * @param piece
-	 *            A piece.
+	 * @param from
+	 *            The cell of the piece to move.
 	 * @param cell
 	 *            A cell.
-	 * @return true if the given piece can move to the given cell, false
-	 *         otherwise.
+	 * @return true if the piece in the first cell can move to the given cell,
+	 *         false otherwise.
 	 */
-	public boolean isValidMove(Piece piece, Cell cell) {
+	public boolean isValidMove(Cell from, Cell cell) {
 		int destRow = cell.getRow();
 		int destCol = cell.getCol();
+		Piece piece = get(from);
+		if (piece == null)
+			return false;
 		// It is not possible to move to a cell which already contains a piece.
 		if (get(destRow, destCol) != null)
 			return false;
 		if (piece.getPlayer() != getCurrentPlayer())
 			return false;
-		int col = piece.getCol();
-		int row = piece.getRow();
+		int col = from.getCol();
+		int row = from.getRow();
 		if (piece.isKing() || getCurrentPlayer() == Player.BELOW) {
 			// cell left above
 			if (destRow == row - 1 && destCol == col - 1)
@@ -723,22 +714,25 @@ public class GamePosition {
 	 * Checks whether user selection is a valid capture Assumes selRow, selCol
 	 * are not -1 (i.e. there has been a selection).
 	 * 
-	 * @param piece
-	 *            A piece.
+	 * @param from
+	 *            The cell of the piece to capture with.
 	 * @param cell
 	 *            A cell.
-	 * @return true if the given piece can capture another cell by moving to the
-	 *         given cell, false otherwise.
+	 * @return true if the piece in the first cell can capture another piece
+	 *         by moving to the given cell, false otherwise.
 	 */
-	public boolean isValidCapture(Piece piece, Cell cell) {
-		if (doubleCaptureAvailible() && piece != getLastUsedToCapture()) {
+	public boolean isValidCapture(Cell from, Cell cell) {
+		if (doubleCaptureAvailible() && !from.equals(getLastUsedToCapture())) {
 			return false;
 		}
+		Piece piece = get(from);
+		if (piece == null)
+			return false;
 		Player player = piece.getPlayer();
 		if (getCurrentPlayer() != player)
 			return false;
-		int row = piece.getRow();
-		int col = piece.getCol();
+		int row = from.getRow();
+		int col = from.getCol();
 		int destRow = cell.getRow();
 		int destCol = cell.getCol();
 		if (piece.isKing() || player == Player.BELOW) {
@@ -779,39 +773,29 @@ public class GamePosition {
 	}
 
 	/**
-	 * TODO Static evaluation of this GamePosition from the point of view of the
-	 * given player.
+	 * Static evaluation of the pieces of one player of this GamePosition: each
+	 * piece is worth the value of its cell (see Cell.value) plus MAN_VALUE or
+	 * KING_VALUE, and a piece of the current player which can capture is worth
+	 * CAPTURE_VALUE more.
 	 * 
 	 * @param player
 	 *            A player.
-	 * @return A static evaluation of this GamePosition from the point of view
-	 *         of the given player, represented by an integer.
+	 * @return A static evaluation of the given player's pieces, represented
+	 *         by an integer.
 	 */
 	public int value(Player player) {
 		int value = 0;
 		for (int row = 0; row < Constants.ROWS; row++)
 			for (int col = 0; col < Constants.COLS; col++) {
 				Piece p = get(row, col);
-				if (p == null)
+				if (p == null || p.getPlayer() != player)
 					continue;
-				Player piecePlayer = p.getPlayer();
-				if (piecePlayer == player) {
-					value += p.getCell().value();
-					if (p.isKing())
-						value += 5;
-					else
-						value += 3;
-					if (player == currentPlayer) {
-						if (hasValidCapture(row, col)) {
-							value += 20;
-						}
-					} else if (hasValidCapture(row, col)) {
-
-						value -= 20;
-					}
-				} else {
-
-				}
+				value += Cell.value(row, col);
+				value += p.isKing() ? Constants.KING_VALUE
+						: Constants.MAN_VALUE;
+				// only the current player's pieces can have a capture
+				if (hasValidCapture(row, col))
+					value += Constants.CAPTURE_VALUE;
 			}
 		return value;
 	}
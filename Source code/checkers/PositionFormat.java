@@ -0,0 +1,171 @@
+package checkers;
+
+import checkers.wrapper.Cell;
+import checkers.wrapper.Piece;
+import checkers.wrapper.Player;
+
+/**
+ * PositionFormat reads and writes game positions as single lines of text,
+ * either in FEN (as used by PDN, e.g. "B:W21,22,K23:B1,2,3") or in the layout
+ * of a saved game (see Board.getSaveFile) with its lines joined by spaces.
+ *
+ * In FEN the colours are given by the squares the players start on: "B" is
+ * the player starting on squares 1-12 (ABOVE) and "W" is the player starting
+ * on squares 21-32 (BELOW).
+ *
+ * @author 090010514
+ */
+public class PositionFormat {
+	private static final int SQUARES = Constants.ROWS * Constants.COLS / 2;
+
+	/**
+	 * Parse a position in either of the supported formats.
+	 *
+	 * @param line
+	 *            A position on a single line.
+	 * @return The position.
+	 * @throws IllegalArgumentException
+	 *             If the line is not a valid position.
+	 */
+	public static GamePosition parse(String line) {
+		line = line.trim();
+		if (line.startsWith("B:") || line.startsWith("W:"))
+			return parseFen(line);
+		return parseSaveLayout(line);
+	}
+
+	/**
+	 * Parse a position in FEN.
+	 *
+	 * @param fen
+	 *            A position such as "W:W21,22,K23:B1,2,3".
+	 * @return The position.
+	 * @throws IllegalArgumentException
+	 *             If the FEN is malformed.
+	 */
+	public static GamePosition parseFen(String fen) {
+		String[] fields = fen.trim().split(":");
+		if (fields.length < 1 || fields[0].length() != 1)
+			throw new IllegalArgumentException("Malformed FEN: " + fen);
+		GamePosition position = new GamePosition();
+		for (int i = 1; i < fields.length; i++) {
+			String field = fields[i].trim();
+			if (field.length() == 0)
+				continue;
+			Player player = fenPlayer(field.charAt(0), fen);
+			String squares = field.substring(1);
+			if (squares.endsWith("."))
+				squares = squares.substring(0, squares.length() - 1);
+			if (squares.length() == 0)
+				continue;
+			for (String square : squares.split(",")) {
+				square = square.trim();
+				boolean king = square.startsWith("K");
+				if (king)
+					square = square.substring(1);
+				int number;
+				try {
+					number = Integer.parseInt(square);
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Malformed FEN: " + fen);
+				}
+				place(position, number, player, king, fen);
+			}
+		}
+		return start(position, fenPlayer(fields[0].charAt(0), fen));
+	}
+
+	private static Player fenPlayer(char colour, String fen) {
+		if (colour == 'B')
+			return Player.ABOVE;
+		if (colour == 'W')
+			return Player.BELOW;
+		throw new IllegalArgumentException("Malformed FEN: " + fen);
+	}
+
+	/**
+	 * Parse a position in the layout of a saved game, with the lines joined by
+	 * spaces, i.e. "1 A 2 N ... 32 BK Black", optionally followed by the game
+	 * style and whether multiple captures are allowed, which are ignored.
+	 *
+	 * @param line
+	 *            A position on a single line.
+	 * @return The position.
+	 * @throws IllegalArgumentException
+	 *             If the line is malformed.
+	 */
+	public static GamePosition parseSaveLayout(String line) {
+		String[] words = line.trim().split("\\s+");
+		if (words.length < 2 * SQUARES + 1)
+			throw new IllegalArgumentException("Incomplete position: " + line);
+		GamePosition position = new GamePosition();
+		for (int i = 0; i < SQUARES; i++) {
+			String number = words[2 * i];
+			String piece = words[2 * i + 1];
+			if (!number.equals(Integer.toString(i + 1)))
+				throw new IllegalArgumentException("Expected square " + (i + 1)
+						+ " but found " + number);
+			if (piece.equals("N"))
+				continue;
+			Player player;
+			if (piece.startsWith("A"))
+				player = Player.ABOVE;
+			else if (piece.startsWith("B"))
+				player = Player.BELOW;
+			else
+				throw new IllegalArgumentException("Bad piece " + piece
+						+ " on square " + (i + 1));
+			place(position, i + 1, player, piece.length() == 2, line);
+		}
+		Player player = Player.fromString(words[2 * SQUARES]);
+		if (player == null)
+			throw new IllegalArgumentException("Bad player "
+					+ words[2 * SQUARES]);
+		return start(position, player);
+	}
+
+	private static void place(GamePosition position, int number,
+			Player player, boolean king, String line) {
+		if (number < 1 || number > SQUARES)
+			throw new IllegalArgumentException("Bad square " + number + " in "
+					+ line);
+		Cell cell = Cell.fromCellNumber(number);
+		position.set(cell.getRow(), cell.getCol(), Piece.get(player, king));
+	}
+
+	/**
+	 * Make a set up position ready to be played from.
+	 */
+	static GamePosition start(GamePosition position, Player player) {
+		position.setCurrentPlayer(player);
+		position.setHasCapture(position.hasCapture());
+		position.setGameOver(!position.getHasCapture() && position.hasLost());
+		return position;
+	}
+
+	/**
+	 * Write a position in FEN.
+	 *
+	 * @param position
+	 *            A game position.
+	 * @return The position in FEN.
+	 */
+	public static String toFen(GamePosition position) {
+		StringBuilder white = new StringBuilder();
+		StringBuilder black = new StringBuilder();
+		for (int number = 1; number <= SQUARES; number++) {
+			Piece piece = position.get(Cell.fromCellNumber(number));
+			if (piece == null)
+				continue;
+			StringBuilder sb = piece.getPlayer() == Player.ABOVE ? black
+					: white;
+			if (sb.length() > 0)
+				sb.append(',');
+			if (piece.isKing())
+				sb.append('K');
+			sb.append(number);
+		}
+		char turn = position.getCurrentPlayer() == Player.ABOVE ? 'B' : 'W';
+		return turn + ":W" + white + ":B" + black;
+	}
+}
@@ -0,0 +1,174 @@
+package checkers;
+
+/**
+ * PositionHistory is a stack of the keys (see GamePosition.getKey) of the
+ * positions reached in a game, used to detect draws: a position occurring for
+ * the third time, or a given number of moves by each player without a man
+ * being moved or a piece being captured. Since such moves can never be undone,
+ * only the positions since the last of them need to be compared.
+ * 
+ * @author 090010514
+ */
+public class PositionHistory {
+	private static final int INITIAL_CAPACITY = 128;
+
+	private long[] keys;
+	// index of the last position reached by an irreversible move, per entry
+	private int[] lastIrreversible;
+	private int size;
+	private int noProgressMoves;
+
+	/**
+	 * Create a new empty history using the default number of moves without
+	 * progress.
+	 */
+	public PositionHistory() {
+		this(Constants.NO_PROGRESS_MOVES);
+	}
+
+	/**
+	 * Create a new empty history.
+	 * 
+	 * @param noProgressMoves
+	 *            The number of moves each player may make without moving a man
+	 *            or capturing before the game is drawn, or 0 for no limit.
+	 */
+	public PositionHistory(int noProgressMoves) {
+		this.noProgressMoves = noProgressMoves;
+		keys = new long[INITIAL_CAPACITY];
+		lastIrreversible = new int[INITIAL_CAPACITY];
+	}
+
+	public int getNoProgressMoves() {
+		return noProgressMoves;
+	}
+
+	/**
+	 * @param noProgressMoves
+	 *            The number of moves each player may make without moving a man
+	 *            or capturing before the game is drawn, or 0 for no limit.
+	 */
+	public void setNoProgressMoves(int noProgressMoves) {
+		this.noProgressMoves = noProgressMoves;
+	}
+
+	/**
+	 * Remove all positions.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Make this history a copy of another.
+	 * 
+	 * @param other
+	 *            A position history.
+	 */
+	public void copyFrom(PositionHistory other) {
+		if (keys.length < other.size) {
+			keys = new long[other.keys.length];
+			lastIrreversible = new int[other.keys.length];
+		}
+		System.arraycopy(other.keys, 0, keys, 0, other.size);
+		System.arraycopy(other.lastIrreversible, 0, lastIrreversible, 0,
+				other.size);
+		size = other.size;
+		noProgressMoves = other.noProgressMoves;
+	}
+
+	/**
+	 * Add a position to the history.
+	 * 
+	 * @param key
+	 *            The key of the position.
+	 * @param irreversible
+	 *            Whether the position was reached by moving a man or
+	 *            capturing (or is the first position).
+	 */
+	public void push(long key, boolean irreversible) {
+		if (size == keys.length) {
+			long[] newKeys = new long[size * 2];
+			int[] newIrreversible = new int[size * 2];
+			System.arraycopy(keys, 0, newKeys, 0, size);
+			System.arraycopy(lastIrreversible, 0, newIrreversible, 0, size);
+			keys = newKeys;
+			lastIrreversible = newIrreversible;
+		}
+		keys[size] = key;
+		if (irreversible || size == 0)
+			lastIrreversible[size] = size;
+		else
+			lastIrreversible[size] = lastIrreversible[size - 1];
+		size++;
+	}
+
+	/**
+	 * Remove the last position added.
+	 */
+	public void pop() {
+		size--;
+	}
+
+	/**
+	 * @return The key of the last position added.
+	 */
+	public long peek() {
+		return keys[size - 1];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Count how many times the last position added occurred before. Only
+	 * positions with the same player to move since the last irreversible move
+	 * are compared.
+	 * 
+	 * @return The number of earlier occurrences of the current position.
+	 */
+	public int getRepetitions() {
+		if (size == 0)
+			return 0;
+		int top = size - 1;
+		long key = keys[top];
+		int count = 0;
+		for (int i = top - 2; i >= lastIrreversible[top]; i -= 2)
+			if (keys[i] == key)
+				count++;
+		return count;
+	}
+
+	/**
+	 * @return The number of moves made since the last irreversible move.
+	 */
+	public int getPliesSinceProgress() {
+		if (size == 0)
+			return 0;
+		return size - 1 - lastIrreversible[size - 1];
+	}
+
+	/**
+	 * @return true if the current position has occurred three times.
+	 */
+	public boolean isRepetitionDraw() {
+		return getRepetitions() >= 2;
+	}
+
+	/**
+	 * @return true if both players have made the maximum number of moves
+	 *         without progress.
+	 */
+	public boolean isNoProgressDraw() {
+		return noProgressMoves > 0
+				&& getPliesSinceProgress() >= 2 * noProgressMoves;
+	}
+
+	/**
+	 * @return true if the game is drawn by either rule.
+	 */
+	public boolean isDraw() {
+		return isRepetitionDraw() || isNoProgressDraw();
+	}
+}
@@ -0,0 +1,371 @@
+package checkers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * PositionIndex maps the Zobrist key of every position reached in an archive
+ * of replay (.rpl) files to the games and plies in which it occurred, and to
+ * the move which was played from it. The index is stored on disk as a sorted
+ * array of fixed size entries, which is memory mapped and binary searched
+ * when looking up a position.
+ *
+ * @author 090010514
+ */
+public class PositionIndex {
+	private static final int MAGIC = 0x434B4958; // "CKIX"
+	private static final int VERSION = 1;
+	// key (8 bytes), game id (4 bytes), ply (2 bytes), move (2 bytes)
+	private static final int ENTRY_SIZE = 16;
+	private static final String REPLAY_EXTENSION = ".rpl";
+
+	private final String[] games;
+	private final MappedByteBuffer entries;
+	private final int size;
+
+	/**
+	 * Open a previously built index file.
+	 *
+	 * @param file
+	 *            An index file.
+	 * @throws IOException
+	 *             If the file cannot be read or is not an index file.
+	 */
+	public PositionIndex(File file) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException(file + " is not a position index");
+			games = new String[in.readInt()];
+			for (int i = 0; i < games.length; i++)
+				games[i] = in.readUTF();
+			long count = in.readLong();
+			long offset = in.getFilePointer();
+			if (count * ENTRY_SIZE > Integer.MAX_VALUE)
+				throw new IOException(file + " is too large to be mapped");
+			size = (int) count;
+			FileChannel channel = in.getChannel();
+			entries = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+					(long) size * ENTRY_SIZE);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * @return The number of games in the index.
+	 */
+	public int getGameCount() {
+		return games.length;
+	}
+
+	/**
+	 * Get the name of the replay file of a game.
+	 *
+	 * @param gameId
+	 *            A game id.
+	 * @return The name of the replay file the game was read from.
+	 */
+	public String getGameName(int gameId) {
+		return games[gameId];
+	}
+
+	/**
+	 * Find all occurrences of a position in the archive.
+	 *
+	 * @param key
+	 *            The key of a position (see GamePosition.getKey).
+	 * @return All occurrences of the position, ordered by game id and ply.
+	 */
+	public ArrayList<Occurrence> lookup(long key) {
+		ArrayList<Occurrence> occurrences = new ArrayList<Occurrence>();
+		for (int i = firstIndexOf(key); i < size && keyAt(i) == key; i++) {
+			int base = i * ENTRY_SIZE;
+			occurrences.add(new Occurrence(entries.getInt(base + 8), entries
+					.getShort(base + 12), entries.getShort(base + 14)));
+		}
+		return occurrences;
+	}
+
+	/**
+	 * Count how often each move was played from a position, using only the
+	 * index (i.e. without replaying any games).
+	 *
+	 * @param key
+	 *            The key of a position.
+	 * @return A map from each move played in the position to the number of
+	 *         times it was played.
+	 */
+	public Map<String, Integer> getMoveStatistics(long key) {
+		Map<String, Integer> stats = new TreeMap<String, Integer>();
+		for (int i = firstIndexOf(key); i < size && keyAt(i) == key; i++) {
+			short move = entries.getShort(i * ENTRY_SIZE + 14);
+			if (move == 0)
+				continue;
+			String str = moveToString(move);
+			Integer count = stats.get(str);
+			stats.put(str, count == null ? 1 : count + 1);
+		}
+		return stats;
+	}
+
+	private long keyAt(int index) {
+		return entries.getLong(index * ENTRY_SIZE);
+	}
+
+	/**
+	 * Binary search for the first entry with a key not less than the given
+	 * key. Keys are compared as signed longs, which is the order they are
+	 * written in.
+	 */
+	private int firstIndexOf(long key) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (keyAt(mid) < key)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Build an index over all replay files in a directory.
+	 *
+	 * @param archive
+	 *            A directory containing replay (.rpl) files.
+	 * @param file
+	 *            The file to which the index should be written.
+	 * @throws IOException
+	 *             If a reading or writing error occurs.
+	 */
+	public static void build(File archive, File file) throws IOException {
+		build(archive, file, null);
+	}
+
+	/**
+	 * Build an index over all replay files in a directory, reporting the
+	 * progress made.
+	 *
+	 * @param archive
+	 *            A directory containing replay (.rpl) files.
+	 * @param file
+	 *            The file to which the index should be written.
+	 * @param listener
+	 *            Told the number of replay files read out of the number in
+	 *            the archive, or null.
+	 * @throws IOException
+	 *             If a reading or writing error occurs.
+	 */
+	public static void build(File archive, File file,
+			ProgressListener listener) throws IOException {
+		String[] names = archive.list(new FilenameFilter() {
+			public boolean accept(File dir, String name) {
+				return name.endsWith(REPLAY_EXTENSION);
+			}
+		});
+		if (names == null)
+			throw new IOException(archive + " is not a directory");
+		Arrays.sort(names);
+		ArrayList<String> games = new ArrayList<String>();
+		ArrayList<Entry> entries = new ArrayList<Entry>();
+		for (int i = 0; i < names.length; i++) {
+			String name = names[i];
+			if (listener != null)
+				listener.progress(i, names.length);
+			String[] moves = readMoves(new File(archive, name));
+			try {
+				addGame(games.size(), moves, entries);
+			} catch (IllegalArgumentException e) {
+				System.err.println("Skipping " + name + ": " + e.getMessage());
+				continue;
+			}
+			games.add(name);
+		}
+		if (listener != null)
+			listener.progress(names.length, names.length);
+		Collections.sort(entries);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(games.size());
+			for (String game : games)
+				out.writeUTF(game);
+			out.writeLong(entries.size());
+			for (Entry entry : entries) {
+				out.writeLong(entry.key);
+				out.writeInt(entry.gameId);
+				out.writeShort(entry.ply);
+				out.writeShort(entry.move);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Replay a game and add an entry for each position reached in it. Entries
+	 * are only added once the whole game has been replayed successfully.
+	 */
+	private static void addGame(int gameId, String[] moves,
+			ArrayList<Entry> entries) {
+		ArrayList<Entry> gameEntries = new ArrayList<Entry>();
+		GamePosition position = new GamePosition();
+		position.newGame();
+		int ply = 0;
+		for (String move : moves) {
+			if (ply == Short.MAX_VALUE)
+				throw new IllegalArgumentException("Too many moves");
+			long key = position.getKey();
+			position.playMove(move);
+			gameEntries.add(new Entry(key, gameId, ply, encodeMove(move)));
+			ply++;
+		}
+		gameEntries.add(new Entry(position.getKey(), gameId, ply, (short) 0));
+		entries.addAll(gameEntries);
+	}
+
+	private static String[] readMoves(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			byte[] bytes = new byte[(int) file.length()];
+			int read = 0;
+			while (read < bytes.length) {
+				int n = in.read(bytes, read, bytes.length - read);
+				if (n < 0)
+					break;
+				read += n;
+			}
+			String str = new String(bytes, 0, read).trim();
+			if (str.length() == 0)
+				return new String[0];
+			return str.split("\\s+");
+		} finally {
+			in.close();
+		}
+	}
+
+	private static short encodeMove(String move) {
+		String[] cells = move.split("-");
+		int from = Integer.parseInt(cells[0]);
+		int to = Integer.parseInt(cells[1]);
+		return (short) (from << 8 | to);
+	}
+
+	private static String moveToString(short move) {
+		return ((move >> 8) & 0xFF) + "-" + (move & 0xFF);
+	}
+
+	/**
+	 * An occurrence of a position in a game of the archive.
+	 */
+	public static class Occurrence {
+		private final int gameId;
+		private final int ply;
+		private final short move;
+
+		private Occurrence(int gameId, int ply, short move) {
+			this.gameId = gameId;
+			this.ply = ply;
+			this.move = move;
+		}
+
+		public int getGameId() {
+			return gameId;
+		}
+
+		public int getPly() {
+			return ply;
+		}
+
+		/**
+		 * @return The move played from the position, or null if the game
+		 *         ended in it.
+		 */
+		public String getMove() {
+			return move == 0 ? null : moveToString(move);
+		}
+	}
+
+	/**
+	 * An entry of the index while it is being built.
+	 */
+	private static class Entry implements Comparable<Entry> {
+		private final long key;
+		private final int gameId;
+		private final short ply;
+		private final short move;
+
+		private Entry(long key, int gameId, int ply, short move) {
+			this.key = key;
+			this.gameId = gameId;
+			this.ply = (short) ply;
+			this.move = move;
+		}
+
+		public int compareTo(Entry other) {
+			if (key != other.key)
+				return key < other.key ? -1 : 1;
+			if (gameId != other.gameId)
+				return gameId < other.gameId ? -1 : 1;
+			return ply - other.ply;
+		}
+	}
+
+	/**
+	 * Builds or queries a position index. Usage:
+	 *
+	 * <pre>
+	 * PositionIndex build &lt;archive directory&gt; &lt;index file&gt;
+	 * PositionIndex query &lt;index file&gt; [moves from the starting position]
+	 * </pre>
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length >= 3 && args[0].equals("build")) {
+			build(new File(args[1]), new File(args[2]),
+					new ProgressListener() {
+						public void progress(long done, long total) {
+							System.err.print("\rRead " + done + " of " + total
+									+ " games");
+						}
+					});
+			System.err.println();
+		} else if (args.length >= 2 && args[0].equals("query")) {
+			PositionIndex index = new PositionIndex(new File(args[1]));
+			GamePosition position = new GamePosition();
+			position.newGame();
+			for (int i = 2; i < args.length; i++)
+				position.playMove(args[i]);
+			long key = position.getKey();
+			for (Occurrence occurrence : index.lookup(key)) {
+				String move = occurrence.getMove();
+				System.out.println(index.getGameName(occurrence.getGameId())
+						+ " ply " + occurrence.getPly()
+						+ (move == null ? " (game over)" : " " + move));
+			}
+			Map<String, Integer> stats = index.getMoveStatistics(key);
+			for (Map.Entry<String, Integer> stat : stats.entrySet())
+				System.out.println(stat.getKey() + ": " + stat.getValue());
+		} else {
+			System.err.println("Usage: PositionIndex build <archive> <index>");
+			System.err.println("       PositionIndex query <index> [moves]");
+		}
+	}
+}
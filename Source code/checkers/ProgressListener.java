@@ -0,0 +1,19 @@
+package checkers;
+
+/**
+ * A ProgressListener is told how far a long running task, such as reading a
+ * large file, has got. It may be called from any thread.
+ * 
+ * @author 090010514
+ */
+public interface ProgressListener {
+	/**
+	 * Report the progress of a task.
+	 * 
+	 * @param done
+	 *            The amount of work done so far.
+	 * @param total
+	 *            The total amount of work, in the same unit.
+	 */
+	void progress(long done, long total);
+}
@@ -0,0 +1,186 @@
+package checkers;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import checkers.ai.Engine;
+import checkers.wrapper.Cell;
+import checkers.wrapper.Move;
+import checkers.wrapper.Player;
+
+/**
+ * A replay of a game, read from a replay (.rpl) file. The moves are streamed
+ * from the file and checked against the legal moves as they are read, so an
+ * illegal move is found when the replay is loaded. A copy of the position is kept every SNAPSHOT_INTERVAL
+ * plies, so the position at any ply is found by playing at most
+ * SNAPSHOT_INTERVAL - 1 moves from the nearest copy before it.
+ * 
+ * @author 090010514
+ */
+public class Replay {
+	// number of plies between the positions kept
+	public static final int SNAPSHOT_INTERVAL = 16;
+	// number of characters read between progress reports
+	private static final int PROGRESS_INTERVAL = 1 << 16;
+
+	// the moves, each encoded as (from << 8 | to) with cell numbers
+	private short[] moves;
+	private int length;
+	// the position after every SNAPSHOT_INTERVAL plies, starting with ply 0
+	private final ArrayList<GamePosition> snapshots;
+
+	/**
+	 * Load a replay from a file.
+	 * 
+	 * @param file
+	 *            A replay file.
+	 * @throws IOException
+	 *             If a reading error occurs or the file contains an illegal
+	 *             move.
+	 */
+	public Replay(File file) throws IOException {
+		this(file, null);
+	}
+
+	/**
+	 * Load a replay from a file, reporting the progress made.
+	 * 
+	 * @param file
+	 *            A replay file.
+	 * @param listener
+	 *            Told the number of characters read out of the length of
+	 *            the file, or null.
+	 * @throws IOException
+	 *             If a reading error occurs or the file contains an illegal
+	 *             move.
+	 */
+	public Replay(File file, ProgressListener listener) throws IOException {
+		moves = new short[64];
+		snapshots = new ArrayList<GamePosition>();
+		Reader in = new BufferedReader(new FileReader(file));
+		try {
+			read(in, file.length(), listener);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Read the moves one at a time, playing each to check it and to take
+	 * snapshots.
+	 */
+	private void read(Reader in, long total, ProgressListener listener)
+			throws IOException {
+		GamePosition position = new GamePosition();
+		position.newGame();
+		snapshots.add(position.clone());
+		StringBuilder token = new StringBuilder();
+		long read = 0;
+		int c;
+		do {
+			c = in.read();
+			if (listener != null && ++read % PROGRESS_INTERVAL == 0)
+				listener.progress(read, total);
+			if (c >= 0 && !Character.isWhitespace(c)) {
+				token.append((char) c);
+			} else if (token.length() > 0) {
+				add(position, token.toString());
+				token.setLength(0);
+			}
+		} while (c >= 0);
+	}
+
+	private void add(GamePosition position, String move) throws IOException {
+		String[] cells = move.split("-");
+		Cell from;
+		Cell to;
+		try {
+			if (cells.length != 2)
+				throw new NumberFormatException();
+			from = Cell.fromCellNumber(Integer.parseInt(cells[0]));
+			to = Cell.fromCellNumber(Integer.parseInt(cells[1]));
+		} catch (NumberFormatException e) {
+			throw new IOException("Malformed move: " + move + " at ply "
+					+ (length + 1));
+		}
+		if (from == null || to == null || !isLegal(position, from, to))
+			throw new IOException("Illegal move: " + move + " at ply "
+					+ (length + 1));
+		position.playMove(from, to);
+		if (length == moves.length)
+			moves = Arrays.copyOf(moves, length * 2);
+		moves[length++] = (short) (from.getCellNumber() << 8 | to
+				.getCellNumber());
+		if (length % SNAPSHOT_INTERVAL == 0)
+			snapshots.add(position.clone());
+	}
+
+	/**
+	 * Check if a move is legal for the owner of the moved piece. As in
+	 * playMove, the owner need not be the current player, since a three move
+	 * opening starts with a move of ABOVE.
+	 */
+	private static boolean isLegal(GamePosition position, Cell from, Cell to) {
+		if (position.get(from) == null)
+			return false;
+		Player player = position.get(from).getPlayer();
+		ArrayList<Move> legal;
+		if (player == position.getCurrentPlayer()) {
+			// includes the rest of a multiple capture
+			legal = Engine.generateMoves(position);
+		} else {
+			position.setCurrentPlayer(player);
+			legal = position.getAllValidMoves();
+		}
+		for (Move move : legal)
+			if (move.getFrom().equals(from) && move.getDestination().equals(to))
+				return true;
+		return false;
+	}
+
+	/**
+	 * @return The number of plies in this replay.
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Get the move played at a given ply.
+	 * 
+	 * @param ply
+	 *            A ply, from 0 to getLength() - 1.
+	 * @return The move, e.g. "11-15".
+	 */
+	public String getMove(int ply) {
+		return getFrom(ply).getCellNumber() + "-"
+				+ getDestination(ply).getCellNumber();
+	}
+
+	private Cell getFrom(int ply) {
+		return Cell.fromCellNumber((moves[ply] >> 8) & 0xFF);
+	}
+
+	private Cell getDestination(int ply) {
+		return Cell.fromCellNumber(moves[ply] & 0xFF);
+	}
+
+	/**
+	 * Get the position reached after a number of plies.
+	 * 
+	 * @param ply
+	 *            A number of plies, from 0 to getLength().
+	 * @return A new copy of the position.
+	 */
+	public GamePosition getPosition(int ply) {
+		GamePosition position = snapshots.get(ply / SNAPSHOT_INTERVAL).clone();
+		for (int i = ply - ply % SNAPSHOT_INTERVAL; i < ply; i++)
+			position.playMove(getFrom(i), getDestination(i));
+		return position;
+	}
+}
@@ -0,0 +1,125 @@
+package checkers;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JSlider;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+/**
+ * The ReplayBar is shown above the board while a replay is shown. It has a
+ * scrub bar to jump to any move, buttons to play, pause and step through the
+ * replay, and a choice of playback speed.
+ * 
+ * @author 090010514
+ */
+public class ReplayBar extends JPanel implements ActionListener,
+		ChangeListener {
+	private static final long serialVersionUID = 1L;
+	private static final Double[] SPEEDS = { 0.5, 1.0, 2.0, 4.0, 8.0 };
+
+	private final CheckersApplet applet;
+	private JButton startButton;
+	private JButton backButton;
+	private JButton playButton;
+	private JButton forwardButton;
+	private JButton endButton;
+	private JComboBox<Double> speedBox;
+	private JSlider slider;
+	private JLabel plyLabel;
+	// whether the controls are being updated, rather than used
+	private boolean updating;
+
+	/**
+	 * Create a new replay bar.
+	 * 
+	 * @param applet
+	 *            The applet showing the replay.
+	 */
+	public ReplayBar(CheckersApplet applet) {
+		super(new BorderLayout());
+		this.applet = applet;
+		JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT, 2, 0));
+		startButton = addButton(buttons, "|<", "Go to the start");
+		backButton = addButton(buttons, "<", "Back one move");
+		playButton = addButton(buttons, "Play", "Play or pause");
+		forwardButton = addButton(buttons, ">", "Forward one move");
+		endButton = addButton(buttons, ">|", "Go to the end");
+		speedBox = new JComboBox<Double>(SPEEDS);
+		speedBox.setToolTipText("Playback speed (times normal)");
+		speedBox.addActionListener(this);
+		buttons.add(speedBox);
+		add(buttons, BorderLayout.NORTH);
+		slider = new JSlider(0, 0, 0);
+		slider.addChangeListener(this);
+		add(slider, BorderLayout.CENTER);
+		plyLabel = new JLabel();
+		add(plyLabel, BorderLayout.EAST);
+	}
+
+	private JButton addButton(JPanel panel, String text, String toolTip) {
+		JButton button = new JButton(text);
+		button.setToolTipText(toolTip);
+		button.setFocusable(false);
+		button.addActionListener(this);
+		panel.add(button);
+		return button;
+	}
+
+	/**
+	 * Show the state of the replay.
+	 * 
+	 * @param ply
+	 *            The number of moves made on the board.
+	 * @param length
+	 *            The number of moves in the replay.
+	 * @param playing
+	 *            Whether the replay is being played through.
+	 */
+	public void update(int ply, int length, boolean playing) {
+		updating = true;
+		slider.setMaximum(length);
+		slider.setValue(ply);
+		plyLabel.setText(ply + " / " + length);
+		playButton.setText(playing ? "Pause" : "Play");
+		speedBox.setSelectedItem(applet.board.getAnimator().getSpeed());
+		updating = false;
+	}
+
+	public void actionPerformed(ActionEvent evt) {
+		if (updating)
+			return;
+		Object source = evt.getSource();
+		if (source == startButton) {
+			applet.setReplayPlaying(false);
+			applet.seekReplay(0);
+		} else if (source == backButton) {
+			applet.stepReplay(false);
+		} else if (source == playButton) {
+			applet.setReplayPlaying(!applet.isReplayPlaying());
+		} else if (source == forwardButton) {
+			applet.stepReplay(true);
+		} else if (source == endButton) {
+			applet.setReplayPlaying(false);
+			applet.seekReplay(slider.getMaximum());
+		} else if (source == speedBox) {
+			applet.board.getAnimator().setSpeed(
+					(Double) speedBox.getSelectedItem());
+		}
+	}
+
+	/**
+	 * Jump to the move the scrub bar is dragged to.
+	 */
+	public void stateChanged(ChangeEvent evt) {
+		if (!updating)
+			applet.seekReplay(slider.getValue());
+	}
+}
@@ -0,0 +1,266 @@
+package checkers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import checkers.wrapper.Cell;
+import checkers.wrapper.GameStyle;
+import checkers.wrapper.Piece;
+import checkers.wrapper.Player;
+
+/**
+ * SaveFormat reads and writes saved games. Games are saved in a compact
+ * binary format; saved games in the older text format (see
+ * Board.getSaveFile) can still be read.
+ * 
+ * The binary format is, in big-endian order: the magic number and the
+ * version (4 bytes each); the squares of ABOVE's pieces, of BELOW's pieces
+ * and of the kings as 32-bit masks, with bit n - 1 for square n; the player
+ * to move, the game style and whether multiple captures are allowed (1 byte
+ * each); the number of moves made (4 bytes) followed by the moves, each
+ * encoded as (from &lt;&lt; 8 | to) in 2 bytes; and a CRC32 of everything
+ * before it (4 bytes). A game with no moves takes 31 bytes.
+ * 
+ * @author 090010514
+ */
+public class SaveFormat {
+	private static final int MAGIC = 0x434B5356; // "CKSV"
+	private static final int VERSION = 1;
+	private static final int SQUARES = Constants.ROWS * Constants.COLS / 2;
+	// size of a file with no moves, less the CRC
+	private static final int HEADER_SIZE = 4 * 2 + 4 * 3 + 3 + 4;
+	private static final int CRC_SIZE = 4;
+
+	/**
+	 * A saved game.
+	 */
+	public static class SavedGame {
+		private final GamePosition position;
+		private final GameStyle gameStyle;
+		private final boolean allowMultiCapture;
+		private final String moves;
+
+		/**
+		 * @param position
+		 *            The position of the game.
+		 * @param gameStyle
+		 *            The game style.
+		 * @param allowMultiCapture
+		 *            Whether multiple captures are allowed.
+		 * @param moves
+		 *            The moves made, separated by spaces, e.g. "11-15 22-18".
+		 */
+		public SavedGame(GamePosition position, GameStyle gameStyle,
+				boolean allowMultiCapture, String moves) {
+			this.position = position;
+			this.gameStyle = gameStyle;
+			this.allowMultiCapture = allowMultiCapture;
+			this.moves = moves;
+		}
+
+		public GamePosition getPosition() {
+			return position;
+		}
+
+		public GameStyle getGameStyle() {
+			return gameStyle;
+		}
+
+		public boolean getAllowMultiCapture() {
+			return allowMultiCapture;
+		}
+
+		/**
+		 * @return The moves made, separated by spaces.
+		 */
+		public String getMoves() {
+			return moves;
+		}
+	}
+
+	/**
+	 * Write a game in the binary format.
+	 * 
+	 * @param file
+	 *            The file to write to.
+	 * @param game
+	 *            The game to save.
+	 * @throws IOException
+	 *             If a writing error occurs or a move is malformed.
+	 */
+	public static void write(File file, SavedGame game) throws IOException {
+		String[] moves = game.getMoves().trim().split("\\s+");
+		int count = moves[0].length() == 0 ? 0 : moves.length;
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count * 2
+				+ CRC_SIZE);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		GamePosition position = game.getPosition();
+		int above = 0;
+		int below = 0;
+		int kings = 0;
+		for (int number = 1; number <= SQUARES; number++) {
+			Piece piece = position.get(Cell.fromCellNumber(number));
+			if (piece == null)
+				continue;
+			int bit = 1 << (number - 1);
+			if (piece.getPlayer() == Player.ABOVE)
+				above |= bit;
+			else
+				below |= bit;
+			if (piece.isKing())
+				kings |= bit;
+		}
+		buffer.putInt(above);
+		buffer.putInt(below);
+		buffer.putInt(kings);
+		buffer.put((byte) position.getCurrentPlayer().ordinal());
+		buffer.put((byte) game.getGameStyle().ordinal());
+		buffer.put((byte) (game.getAllowMultiCapture() ? 1 : 0));
+		buffer.putInt(count);
+		for (int i = 0; i < count; i++)
+			buffer.putShort(encodeMove(moves[i]));
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, buffer.position());
+		buffer.putInt((int) crc.getValue());
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file)));
+		try {
+			out.write(buffer.array());
+		} finally {
+			out.close();
+		}
+	}
+
+	private static short encodeMove(String move) throws IOException {
+		String[] cells = move.split("-");
+		try {
+			if (cells.length == 2) {
+				int from = Integer.parseInt(cells[0]);
+				int to = Integer.parseInt(cells[1]);
+				if (from >= 1 && from <= SQUARES && to >= 1 && to <= SQUARES)
+					return (short) (from << 8 | to);
+			}
+		} catch (NumberFormatException e) {
+		}
+		throw new IOException("Malformed move: " + move);
+	}
+
+	/**
+	 * Read a saved game in either format.
+	 * 
+	 * @param file
+	 *            A saved game.
+	 * @return The game.
+	 * @throws IOException
+	 *             If a reading error occurs or the file is not a valid saved
+	 *             game.
+	 */
+	public static SavedGame read(File file) throws IOException {
+		ByteBuffer buffer = readFully(file);
+		if (buffer.remaining() >= 4 && buffer.getInt(0) == MAGIC)
+			return readBinary(buffer);
+		return readText(new String(buffer.array(), 0, buffer.limit()));
+	}
+
+	/**
+	 * Read a whole file into a buffer with a single read where possible.
+	 */
+	private static ByteBuffer readFully(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new IOException(file + " is too large");
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0)
+				;
+			buffer.flip();
+			return buffer;
+		} finally {
+			in.close();
+		}
+	}
+
+	private static SavedGame readBinary(ByteBuffer buffer) throws IOException {
+		if (buffer.remaining() < HEADER_SIZE + CRC_SIZE)
+			throw new IOException("Saved game is truncated");
+		int end = buffer.limit() - CRC_SIZE;
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, end);
+		if (buffer.getInt(end) != (int) crc.getValue())
+			throw new IOException("Saved game is corrupt (bad checksum)");
+		buffer.getInt(); // magic
+		int version = buffer.getInt();
+		if (version != VERSION)
+			throw new IOException("Unsupported saved game version " + version);
+		int above = buffer.getInt();
+		int below = buffer.getInt();
+		int kings = buffer.getInt();
+		if ((above & below) != 0 || (kings & ~(above | below)) != 0)
+			throw new IOException("Saved game has overlapping pieces");
+		GamePosition position = new GamePosition();
+		for (int number = 1; number <= SQUARES; number++) {
+			int bit = 1 << (number - 1);
+			if (((above | below) & bit) == 0)
+				continue;
+			Player player = (above & bit) != 0 ? Player.ABOVE : Player.BELOW;
+			Cell cell = Cell.fromCellNumber(number);
+			position.set(cell.getRow(), cell.getCol(), Piece.get(player,
+					(kings & bit) != 0));
+		}
+		Player player = get(Player.values(), buffer.get(), "player");
+		GameStyle gameStyle = get(GameStyle.values(), buffer.get(),
+				"game style");
+		boolean allowMultiCapture = buffer.get() != 0;
+		int count = buffer.getInt();
+		if (count < 0 || count * 2L != end - buffer.position())
+			throw new IOException("Saved game has a bad number of moves: "
+					+ count);
+		StringBuilder moves = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			short move = buffer.getShort();
+			moves.append((move >> 8) & 0xFF).append('-').append(move & 0xFF)
+					.append(' ');
+		}
+		return new SavedGame(PositionFormat.start(position, player),
+				gameStyle, allowMultiCapture, moves.toString());
+	}
+
+	private static <T> T get(T[] values, byte ordinal, String name)
+			throws IOException {
+		if (ordinal < 0 || ordinal >= values.length)
+			throw new IOException("Saved game has a bad " + name + ": "
+					+ ordinal);
+		return values[ordinal];
+	}
+
+	/**
+	 * Read a saved game in the text format, which has no moves.
+	 */
+	private static SavedGame readText(String text) throws IOException {
+		GamePosition position;
+		try {
+			position = PositionFormat.parseSaveLayout(text);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage());
+		}
+		String[] words = text.trim().split("\\s+");
+		int index = 2 * SQUARES + 1;
+		GameStyle gameStyle = words.length > index ? GameStyle
+				.fromString(words[index]) : null;
+		if (gameStyle == null)
+			throw new IOException("Missing or bad game style");
+		boolean allowMultiCapture = words.length <= index + 1
+				|| Boolean.parseBoolean(words[index + 1]);
+		return new SavedGame(position, gameStyle, allowMultiCapture, "");
+	}
+}
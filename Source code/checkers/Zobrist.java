@@ -0,0 +1,51 @@
+package checkers;
+
+import java.util.Random;
+
+import checkers.wrapper.Player;
+
+/**
+ * Zobrist keys used to hash game positions. The keys are generated from a
+ * fixed seed so that a position hashes to the same value on every run, which
+ * allows the hash to be stored on disk (see PositionIndex).
+ *
+ * @author 090010514
+ */
+public class Zobrist {
+	// number of playable (black) squares on the board
+	public static final int SQUARES = Constants.ROWS * Constants.COLS / 2;
+	// must never change, otherwise stored position indexes become invalid
+	private static final long SEED = 0x436865636B657273L;
+
+	private static final long[][] KEYS = new long[SQUARES][4];
+	/**
+	 * Key which is XOR-ed into the hash when it is Red (ABOVE) to move.
+	 */
+	public static final long SIDE;
+
+	static {
+		Random random = new Random(SEED);
+		for (int square = 0; square < SQUARES; square++)
+			for (int type = 0; type < 4; type++)
+				KEYS[square][type] = random.nextLong();
+		SIDE = random.nextLong();
+	}
+
+	/**
+	 * Get the key of a piece on a given square.
+	 *
+	 * @param square
+	 *            A square index, i.e. the cell number minus one.
+	 * @param player
+	 *            The player owning the piece.
+	 * @param king
+	 *            Whether or not the piece is a king.
+	 * @return The key of the piece on the given square.
+	 */
+	public static long get(int square, Player player, boolean king) {
+		int type = player == Player.ABOVE ? 0 : 2;
+		if (king)
+			type++;
+		return KEYS[square][type];
+	}
+}
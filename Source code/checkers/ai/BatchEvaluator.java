@@ -0,0 +1,138 @@
+package checkers.ai;
+
+import checkers.Constants;
+import checkers.wrapper.Cell;
+
+/**
+ * BatchEvaluator computes the static evaluation of HeuristicEvaluator for a
+ * whole batch of positions at once, using bit operations and population
+ * counts on bitboards instead of visiting the pieces one by one. The score
+ * of a position, from the point of view of the player to move, is
+ *
+ * <pre>
+ * sum over own pieces (Cell.value + 3 for a man or 5 for a king
+ *                      + 20 if it has a capture)
+ * - sum over the other player's pieces (Cell.value + 3 or 5)
+ * </pre>
+ *
+ * As Cell.value is 1 plus one for each of the rings of cells of value at
+ * least 2, 3 and 4, the positional sum over a set of pieces is the number of
+ * pieces plus the number of them within each of those rings.
+ *
+ * This class evaluates the positions one at a time, which is the fastest
+ * way measured so far (see EvaluatorBenchmark). The vectorised
+ * VectorBatchEvaluator is only used if the checkers.vectorEvaluation system
+ * property is true and the jdk.incubator.vector module is available (with
+ * --add-modules jdk.incubator.vector).
+ *
+ * As it needs that module to compile, VectorBatchEvaluator is kept in the
+ * separate "Vector source code" root, which is compiled after "Source code"
+ * and only where the module is present:
+ *
+ * <pre>
+ * javac --add-modules jdk.incubator.vector -cp &lt;classes&gt; -d &lt;classes&gt; checkers/ai/VectorBatchEvaluator.java
+ * </pre>
+ *
+ * Without it create always returns this class.
+ *
+ * @author 090010514
+ */
+public class BatchEvaluator {
+	/**
+	 * System property which, if set to true, enables the vectorised
+	 * evaluator.
+	 */
+	public static final String VECTOR_PROPERTY = "checkers.vectorEvaluation";
+	private static final String VECTOR_CLASS = "checkers.ai.VectorBatchEvaluator";
+
+	static final int MAN_VALUE = HeuristicEvaluator.MAN_VALUE;
+	static final int KING_VALUE = HeuristicEvaluator.KING_VALUE;
+	static final int CAPTURE_VALUE = HeuristicEvaluator.CAPTURE_VALUE;
+	// cells whose column is at least 2, and at most 5
+	static final long COL_MIN_2 = 0xFCFCFCFCFCFCFCFCL;
+	static final long COL_MAX_5 = 0x3F3F3F3F3F3F3F3FL;
+	// cells of value at least 2, 3 and 4
+	static final long VALUE_2 = valueMask(2);
+	static final long VALUE_3 = valueMask(3);
+	static final long VALUE_4 = valueMask(4);
+
+	private static long valueMask(int value) {
+		long mask = 0;
+		for (int row = 0; row < Constants.ROWS; row++)
+			for (int col = 0; col < Constants.COLS; col++)
+				if (Cell.value(row, col) >= value)
+					mask |= 1L << (row * Constants.COLS + col);
+		return mask;
+	}
+
+	/**
+	 * Get the configured evaluator.
+	 *
+	 * @return A VectorBatchEvaluator if it is enabled by VECTOR_PROPERTY and
+	 *         the Vector API can be used, otherwise a scalar BatchEvaluator.
+	 */
+	public static BatchEvaluator create() {
+		if (!Boolean.getBoolean(VECTOR_PROPERTY))
+			return new BatchEvaluator();
+		try {
+			return (BatchEvaluator) Class.forName(VECTOR_CLASS)
+					.getDeclaredConstructor().newInstance();
+		} catch (Exception e) {
+			// the class is missing or could not be instantiated
+		} catch (LinkageError e) {
+			// the module is not in the run-time image or not resolved
+		}
+		return new BatchEvaluator();
+	}
+
+	/**
+	 * Evaluate every position of a batch.
+	 *
+	 * @param batch
+	 *            A batch of positions.
+	 * @param scores
+	 *            Receives the score of each position, from the point of view
+	 *            of its player to move, at the position's index.
+	 */
+	public void evaluate(PositionBatch batch, int[] scores) {
+		evaluate(batch, scores, 0, batch.size());
+	}
+
+	/**
+	 * Evaluate a range of the positions of a batch, one at a time.
+	 */
+	protected void evaluate(PositionBatch batch, int[] scores, int from, int to) {
+		for (int i = from; i < to; i++)
+			scores[i] = evaluate(batch.own[i], batch.opponent[i],
+					batch.kings[i], batch.aboveToMove[i]);
+	}
+
+	/**
+	 * Evaluate a single position given as bitboards.
+	 */
+	static int evaluate(long own, long opponent, long kings, long aboveToMove) {
+		long empty = ~(own | opponent);
+		// own pieces able to capture downwards (towards row 7) and upwards
+		long down = (opponent >>> 7 & empty >>> 14 & COL_MIN_2)
+				| (opponent >>> 9 & empty >>> 18 & COL_MAX_5);
+		long up = (opponent << 9 & empty << 18 & COL_MIN_2)
+				| (opponent << 7 & empty << 14 & COL_MAX_5);
+		long ownKings = own & kings;
+		long ownMen = own & ~kings;
+		long capturers = (ownKings | ownMen & aboveToMove) & down
+				| (ownKings | ownMen & ~aboveToMove) & up;
+		return side(own, kings) - side(opponent, kings) + CAPTURE_VALUE
+				* Long.bitCount(capturers);
+	}
+
+	/**
+	 * The positional and material value of a set of pieces.
+	 */
+	private static int side(long pieces, long kings) {
+		return (1 + MAN_VALUE) * Long.bitCount(pieces)
+				+ Long.bitCount(pieces & VALUE_2)
+				+ Long.bitCount(pieces & VALUE_3)
+				+ Long.bitCount(pieces & VALUE_4)
+				+ (KING_VALUE - MAN_VALUE) * Long.bitCount(pieces & kings);
+	}
+}
@@ -0,0 +1,690 @@
+package checkers.ai;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import checkers.GamePosition;
+import checkers.PositionHistory;
+import checkers.jfr.SearchIterationEvent;
+import checkers.wrapper.Move;
+
+/**
+ * Engine chooses moves for the AI using a principal variation (alpha-beta)
+ * search to a fixed depth followed by a quiescence search over pending
+ * captures. Late quiet moves are searched with reduced depth, and quiet moves
+ * near the leaves which can not reach alpha are pruned (see EngineOptions).
+ * Positions repeating an earlier position of the game or the search, or
+ * reached after too many moves without progress, are scored as draws.
+ *
+ * @author 090010514
+ */
+public class Engine {
+	/**
+	 * Score of a won position. Wins found closer to the root score higher.
+	 */
+	public static final int WIN = 10000;
+	/**
+	 * Score of a drawn position.
+	 */
+	public static final int DRAW = 0;
+	// scores beyond this bound are wins or losses
+	static final int WIN_BOUND = WIN - 1000;
+	// bound on all scores, used as the initial search window
+	private static final int INFINITY = WIN + 1;
+	// the transposition table holds 2^TABLE_BITS entries
+	private static final int TABLE_BITS = 20;
+	// the evaluation cache holds 2^EVALUATION_BITS entries
+	private static final int EVALUATION_BITS = 16;
+	// initial half-width of the aspiration window
+	private static final int ASPIRATION_WINDOW = 10;
+	// first iteration searched with an aspiration window
+	private static final int ASPIRATION_DEPTH = 3;
+	// longest principal variation returned
+	private static final int MAX_VARIATION = 32;
+	// deepest iteration of a search limited only by the clock
+	private static final int MAX_DEPTH = 40;
+	// thrown to unwind the search when the time limit is reached
+	private static final SearchAborted ABORTED = new SearchAborted();
+
+	private final SearchStatistics statistics;
+	private final TranspositionTable table;
+	private final EvaluationCache evaluations;
+	private final MoveOrdering ordering;
+	private EngineOptions options;
+	// set by any thread, and taken up by the next search
+	private volatile Evaluator evaluator;
+	// the evaluator of the current search, whose results are cached
+	private Evaluator searchEvaluator;
+	private final ArrayList<SearchListener> listeners;
+	// best move found at the root so far
+	private Move rootBest;
+	// score of the root position
+	private int rootScore;
+	// System.nanoTime() at which the search must stop
+	private long deadline;
+	// keys of the positions of the game and the current search path
+	private final PositionHistory path;
+	// set by another thread to stop the current search
+	private volatile boolean stopped;
+	// set by another thread to cancel the current search, or null
+	private AtomicBoolean cancelled;
+
+	/**
+	 * Create a new Engine with the default options.
+	 */
+	public Engine() {
+		this(new EngineOptions());
+	}
+
+	/**
+	 * Create a new Engine.
+	 *
+	 * @param options
+	 *            The options of the selective search.
+	 */
+	public Engine(EngineOptions options) {
+		this.options = options;
+		evaluator = HeuristicEvaluator.INSTANCE;
+		searchEvaluator = evaluator;
+		statistics = new SearchStatistics();
+		listeners = new ArrayList<SearchListener>();
+		table = new TranspositionTable(TABLE_BITS);
+		evaluations = new EvaluationCache(EVALUATION_BITS);
+		ordering = new MoveOrdering();
+		path = new PositionHistory();
+	}
+
+	public EngineOptions getOptions() {
+		return options;
+	}
+
+	/**
+	 * Set the options of the selective search. Takes effect from the next
+	 * search.
+	 *
+	 * @param options
+	 *            Engine options.
+	 */
+	public void setOptions(EngineOptions options) {
+		this.options = options;
+	}
+
+	public Evaluator getEvaluator() {
+		return evaluator;
+	}
+
+	/**
+	 * Set the static evaluation. May be called from any thread, e.g. to load
+	 * new weights between games; takes effect from the next search.
+	 *
+	 * @param evaluator
+	 *            An evaluator.
+	 */
+	public void setEvaluator(Evaluator evaluator) {
+		this.evaluator = evaluator;
+	}
+
+	/**
+	 * Add a listener to be notified of the progress of searches.
+	 *
+	 * @param listener
+	 *            A search listener.
+	 */
+	public void addSearchListener(SearchListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Remove a previously added search listener.
+	 *
+	 * @param listener
+	 *            A search listener.
+	 */
+	public void removeSearchListener(SearchListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * @return The statistics of the last search.
+	 */
+	public SearchStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Search a game position to a given depth and return the best move for
+	 * the current player. The position is searched with increasing depth
+	 * (iterative deepening), each iteration using an aspiration window around
+	 * the score of the previous one.
+	 *
+	 * @param position
+	 *            A game position. It is not changed by the search.
+	 * @param depth
+	 *            The number of moves to search ahead before the quiescence
+	 *            search takes over.
+	 * @return The best move, or null if the current player has no moves.
+	 */
+	public Move search(GamePosition position, int depth) {
+		return search(position, depth, 0);
+	}
+
+	/**
+	 * Search a game position to a given depth, or until a time limit is
+	 * reached, and return the best move for the current player. If the time
+	 * runs out the best move of the deepest finished iteration is returned.
+	 *
+	 * @param position
+	 *            A game position. It is not changed by the search.
+	 * @param depth
+	 *            The number of moves to search ahead before the quiescence
+	 *            search takes over.
+	 * @param timeLimit
+	 *            The time limit in milliseconds, or 0 for no limit.
+	 * @return The best move, or null if the current player has no moves.
+	 */
+	public Move search(GamePosition position, int depth, long timeLimit) {
+		return search(position, depth, timeLimit, null);
+	}
+
+	/**
+	 * Search a game position as above, taking the positions reached earlier in
+	 * the game into account, so that repeating one of them is scored as a
+	 * draw.
+	 *
+	 * @param position
+	 *            A game position. It is not changed by the search.
+	 * @param depth
+	 *            The number of moves to search ahead before the quiescence
+	 *            search takes over.
+	 * @param timeLimit
+	 *            The time limit in milliseconds, or 0 for no limit.
+	 * @param history
+	 *            The positions of the game, ending with the given position,
+	 *            or null if they are not known.
+	 * @return The best move, or null if the current player has no moves.
+	 */
+	public Move search(GamePosition position, int depth, long timeLimit,
+			PositionHistory history) {
+		return search(position, depth, timeLimit, history, null);
+	}
+
+	/**
+	 * Search a game position as above, unless it is cancelled. Setting the
+	 * cancelled flag stops the search like stop does, but as the flag belongs
+	 * to this search alone, it can also be set before the search has started,
+	 * which then stops at its first check of the flag.
+	 *
+	 * @param position
+	 *            A game position. It is not changed by the search.
+	 * @param depth
+	 *            The number of moves to search ahead before the quiescence
+	 *            search takes over.
+	 * @param timeLimit
+	 *            The time limit in milliseconds, or 0 for no limit.
+	 * @param history
+	 *            The positions of the game, ending with the given position,
+	 *            or null if they are not known.
+	 * @param cancelled
+	 *            A flag set to cancel the search, or null.
+	 * @return The best move, or null if the current player has no moves.
+	 */
+	public Move search(GamePosition position, int depth, long timeLimit,
+			PositionHistory history, AtomicBoolean cancelled) {
+		return search(position, depth, timeLimit, null, history, cancelled);
+	}
+
+	/**
+	 * Search a game position for as long as a game clock allows and return
+	 * the best move for the current player. If there is only one legal move
+	 * it is returned without searching.
+	 *
+	 * @param position
+	 *            A game position. It is not changed by the search.
+	 * @param clock
+	 *            The time manager of the engine's clock. Its moveFinished
+	 *            method should be called once the move has been played.
+	 * @param history
+	 *            The positions of the game, ending with the given position,
+	 *            or null if they are not known.
+	 * @return The best move, or null if the current player has no moves.
+	 */
+	public Move search(GamePosition position, TimeManager clock,
+			PositionHistory history) {
+		clock.startMove(generateMoves(position).size());
+		return search(position, MAX_DEPTH, clock.getHardLimit(), clock,
+				history, null);
+	}
+
+	private Move search(GamePosition position, int depth, long timeLimit,
+			TimeManager clock, PositionHistory history, AtomicBoolean cancelled) {
+		stopped = false;
+		this.cancelled = cancelled;
+		Evaluator current = evaluator;
+		if (current != searchEvaluator) {
+			// stored scores come from the previous evaluator
+			evaluations.clear();
+			table.clear();
+			searchEvaluator = current;
+		}
+		if (history != null && history.size() > 0
+				&& history.peek() == position.getKey()) {
+			path.copyFrom(history);
+		} else {
+			path.clear();
+			path.push(position.getKey(), true);
+		}
+		deadline = timeLimit > 0 ? System.nanoTime() + timeLimit * 1000000
+				: Long.MAX_VALUE;
+		statistics.reset();
+		ordering.newSearch();
+		rootBest = null;
+		rootScore = 0;
+		ArrayList<Move> moves = generateMoves(position);
+		if (moves.size() == 0 || (clock != null && moves.size() == 1)) {
+			if (moves.size() == 1)
+				rootBest = moves.get(0);
+			statistics.searchFinished();
+			fireSearchFinished();
+			return rootBest;
+		}
+		for (int iteration = 1; iteration <= depth; iteration++) {
+			SearchIterationEvent event = new SearchIterationEvent();
+			event.begin();
+			try {
+				searchIteration(position, moves, iteration);
+			} catch (SearchAborted e) {
+				break;
+			}
+			statistics.iterationFinished();
+			if (event.shouldCommit()) {
+				event.depth = iteration;
+				event.score = rootScore;
+				event.nodes = statistics.getTotalNodes();
+				event.commit();
+			}
+			for (SearchListener listener : listeners)
+				listener.iterationFinished(iteration, rootScore, rootBest,
+						statistics);
+			if (clock != null && !clock.iterationFinished(rootBest, rootScore))
+				break;
+		}
+		if (rootBest == null) {
+			// not even the first iteration finished
+			rootBest = moves.get(0);
+		}
+		statistics.searchFinished();
+		fireSearchFinished();
+		return rootBest;
+	}
+
+	/**
+	 * Search the root position to the given depth, using an aspiration window
+	 * around the score of the previous iteration which is widened if the
+	 * score falls outside it.
+	 */
+	private void searchIteration(GamePosition position, ArrayList<Move> moves,
+			int depth) {
+		int alpha = -INFINITY;
+		int beta = INFINITY;
+		int delta = ASPIRATION_WINDOW;
+		if (depth >= ASPIRATION_DEPTH) {
+			alpha = Math.max(rootScore - delta, -INFINITY);
+			beta = Math.min(rootScore + delta, INFINITY);
+		}
+		while (true) {
+			int score = searchRoot(position, moves, depth, alpha, beta);
+			if (score <= alpha && alpha > -INFINITY) {
+				delta *= 2;
+				alpha = Math.max(score - delta, -INFINITY);
+			} else if (score >= beta && beta < INFINITY) {
+				delta *= 2;
+				beta = Math.min(score + delta, INFINITY);
+			} else {
+				rootScore = score;
+				return;
+			}
+			statistics.countAspirationResearch();
+		}
+	}
+
+	/**
+	 * Get the principal variation of the last search, i.e. the sequence of
+	 * moves the engine expects to be played, by following the best moves
+	 * stored in the transposition table.
+	 *
+	 * @param position
+	 *            The position which was searched.
+	 * @return The expected moves, starting with the best move.
+	 */
+	public ArrayList<Move> getPrincipalVariation(GamePosition position) {
+		ArrayList<Move> variation = new ArrayList<Move>();
+		if (rootBest == null)
+			return variation;
+		Move move = rootBest;
+		GamePosition node = position;
+		while (move != null && variation.size() < MAX_VARIATION) {
+			variation.add(move);
+			node = node.applyMove(move);
+			move = null;
+			if (node.isGameOver() || node.doubleCaptureAvailible())
+				break;
+			int slot = table.probe(node.getKey());
+			if (slot < 0)
+				break;
+			int code = table.getMove(slot);
+			for (Move candidate : generateMoves(node))
+				if (MoveOrdering.encode(candidate) == code)
+					move = candidate;
+		}
+		return variation;
+	}
+
+	/**
+	 * Stop the search running on another thread as soon as possible. The
+	 * search returns the best move of the deepest finished iteration.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Abort the search if the time limit has been reached or it has been
+	 * stopped. The clock is only read every 1024 nodes.
+	 */
+	private void checkTime() {
+		if ((statistics.getTotalNodes() & 1023) == 0
+				&& (stopped || (cancelled != null && cancelled.get()) || System
+						.nanoTime() > deadline))
+			throw ABORTED;
+	}
+
+	private void fireSearchFinished() {
+		for (SearchListener listener : listeners)
+			listener.searchFinished(rootBest, rootScore, statistics);
+	}
+
+	/**
+	 * @return The score of the best move found by the last search, from the
+	 *         point of view of the player to move.
+	 */
+	public int getScore() {
+		return rootScore;
+	}
+
+	/**
+	 * Search the moves of the root position. The best move is kept in rootBest
+	 * unless the search failed low, in which case the best move of the
+	 * previous iteration is kept.
+	 */
+	private int searchRoot(GamePosition position, ArrayList<Move> moves,
+			int depth, int alpha, int beta) {
+		boolean continuation = position.doubleCaptureAvailible();
+		long key = position.getKey();
+		int hashMove = MoveOrdering.NO_MOVE;
+		if (rootBest != null) {
+			hashMove = MoveOrdering.encode(rootBest);
+		} else if (!continuation) {
+			int slot = table.probe(key);
+			if (slot >= 0)
+				hashMove = table.getMove(slot);
+		}
+		ordering.order(position, moves, hashMove, 0);
+		int originalAlpha = alpha;
+		int best = -INFINITY;
+		Move bestMove = null;
+		for (int i = 0; i < moves.size(); i++) {
+			Move move = moves.get(i);
+			int score = searchPrincipalVariation(position, move, i, depth - 1,
+					alpha, beta, 1);
+			if (score > best) {
+				best = score;
+				bestMove = move;
+				if (score > alpha)
+					alpha = score;
+				if (alpha >= beta)
+					break;
+			}
+		}
+		if (best > originalAlpha)
+			rootBest = bestMove;
+		if (!continuation)
+			table.store(key, depth, best, flag(best, originalAlpha, beta),
+					MoveOrdering.encode(bestMove), 0);
+		return best;
+	}
+
+	/**
+	 * Principal variation search of a move: the first move of a node is
+	 * searched with the full window, later moves with a null window around
+	 * alpha, which only proves that they are not better. If a later move does
+	 * turn out to be better it is searched again with the full window.
+	 */
+	private int searchPrincipalVariation(GamePosition node, Move move,
+			int index, int depth, int alpha, int beta, int ply) {
+		if (index == 0 || beta - alpha <= 1)
+			return searchChild(node, move, depth, alpha, beta, ply);
+		int score = searchChild(node, move, depth, alpha, alpha + 1, ply);
+		if (score > alpha && score < beta) {
+			statistics.countPrincipalVariationResearch();
+			score = searchChild(node, move, depth, alpha, beta, ply);
+		}
+		return score;
+	}
+
+	/**
+	 * Get the kind of bound a score is, given the window it was searched with.
+	 */
+	private static int flag(int score, int alpha, int beta) {
+		if (score >= beta)
+			return TranspositionTable.LOWER;
+		if (score > alpha)
+			return TranspositionTable.EXACT;
+		return TranspositionTable.UPPER;
+	}
+
+	/**
+	 * Apply a move and search the resulting position. If the move leaves the
+	 * same player to move (a multiple capture) the score is not negated and
+	 * the depth is not reduced, since the turn is not over.
+	 */
+	private int searchChild(GamePosition node, Move move, int depth,
+			int alpha, int beta, int ply) {
+		GamePosition child = node.applyMove(move);
+		path.push(child.getKey(), MoveOrdering.isCapture(move)
+				|| !move.getPiece().isKing());
+		int score;
+		if (child.getCurrentPlayer() == node.getCurrentPlayer())
+			score = alphaBeta(child, depth + 1, alpha, beta, ply);
+		else
+			score = -alphaBeta(child, depth, -beta, -alpha, ply);
+		path.pop();
+		return score;
+	}
+
+	/**
+	 * Alpha-beta search in negamax form, i.e. the returned score is from the
+	 * point of view of the current player of the given node.
+	 */
+	private int alphaBeta(GamePosition node, int depth, int alpha, int beta,
+			int ply) {
+		if (depth <= 0)
+			return quiescence(node, alpha, beta, ply);
+		statistics.countNode(ply);
+		checkTime();
+		if (node.isGameOver())
+			return -WIN + ply;
+		// unlike in a game, a single repetition is enough to score a draw
+		if (path.getRepetitions() > 0 || path.isNoProgressDraw())
+			return DRAW;
+		/*
+		 * Positions in the middle of a multiple capture are not stored, as
+		 * the key does not tell which piece has to continue capturing.
+		 */
+		boolean continuation = node.doubleCaptureAvailible();
+		long key = 0;
+		int hashMove = MoveOrdering.NO_MOVE;
+		if (!continuation) {
+			// the key of the node was pushed by searchChild
+			key = path.peek();
+			int slot = table.probe(key);
+			statistics.countTableProbe(slot >= 0);
+			if (slot >= 0) {
+				hashMove = table.getMove(slot);
+				if (table.getDepth(slot) >= depth) {
+					int score = table.getScore(slot, ply);
+					int flag = table.getFlag(slot);
+					if (flag == TranspositionTable.EXACT
+							|| (flag == TranspositionTable.LOWER && score >= beta)
+							|| (flag == TranspositionTable.UPPER && score <= alpha)) {
+						statistics.countTableCutoff();
+						return score;
+					}
+				}
+			}
+		}
+		ArrayList<Move> moves = generateMoves(node);
+		if (moves.size() == 0)
+			return -WIN + ply;
+		ordering.order(node, moves, hashMove, ply);
+		/*
+		 * Selective search only applies to quiet moves. If one move is a
+		 * capture all of them are, since captures are mandatory.
+		 */
+		boolean quiet = !continuation && !MoveOrdering.isCapture(moves.get(0));
+		int futilityMargin = quiet ? options.getFutilityMargin(depth) : -1;
+		int futileValue = -INFINITY;
+		if (futilityMargin >= 0 && Math.abs(alpha) < WIN_BOUND) {
+			int value = evaluate(node, key) + futilityMargin;
+			if (value <= alpha)
+				futileValue = value;
+		}
+		int originalAlpha = alpha;
+		int best = -INFINITY;
+		Move bestMove = null;
+		for (int i = 0; i < moves.size(); i++) {
+			Move move = moves.get(i);
+			boolean promotion = MoveOrdering.isPromotion(move);
+			int score;
+			if (futileValue > -INFINITY && i > 0 && !promotion) {
+				// even with the margin the move can not reach alpha
+				statistics.countFutilityPrune();
+				if (futileValue > best)
+					best = futileValue;
+				continue;
+			} else if (quiet && !promotion && options.getLateMoveReductions()
+					&& i >= options.getReductionMoveIndex()
+					&& depth >= options.getReductionMinDepth()) {
+				statistics.countReduction();
+				score = searchChild(node, move, depth - 1
+						- options.getReduction(), alpha, alpha + 1, ply + 1);
+				if (score > alpha) {
+					statistics.countReductionResearch();
+					score = searchPrincipalVariation(node, move, i, depth - 1,
+							alpha, beta, ply + 1);
+				}
+			} else {
+				score = searchPrincipalVariation(node, move, i, depth - 1,
+						alpha, beta, ply + 1);
+			}
+			if (score > best) {
+				best = score;
+				bestMove = move;
+				if (score > alpha)
+					alpha = score;
+				if (alpha >= beta) {
+					statistics.countBetaCutoff(i);
+					ordering.cutoff(node.getCurrentPlayer(), move, depth, ply);
+					break;
+				}
+			}
+		}
+		if (!continuation)
+			table.store(key, depth, best, flag(best, originalAlpha, beta),
+					MoveOrdering.encode(bestMove), ply);
+		return best;
+	}
+
+	/**
+	 * Get the static evaluation of a position, from the evaluation cache if it
+	 * is there.
+	 */
+	private int evaluate(GamePosition node, long key) {
+		int value = evaluations.probe(key);
+		statistics.countEvaluation(value != EvaluationCache.MISSING);
+		if (value == EvaluationCache.MISSING) {
+			value = searchEvaluator.evaluate(node);
+			evaluations.store(key, value);
+		}
+		return value;
+	}
+
+	/**
+	 * Quiescence search: keeps playing out captures until the position is
+	 * quiet, and only then uses the static evaluation. Since captures are
+	 * mandatory, a position with a capture available can not "stand pat" on
+	 * its static value, so all captures are searched.
+	 */
+	private int quiescence(GamePosition node, int alpha, int beta, int ply) {
+		statistics.countQuiescenceNode(ply);
+		checkTime();
+		if (node.isGameOver())
+			return -WIN + ply;
+		ArrayList<Move> captures = generateCaptures(node);
+		if (captures.size() == 0)
+			return evaluate(node, node.getKey());
+		ordering.order(node, captures, MoveOrdering.NO_MOVE, ply);
+		int best = -INFINITY;
+		for (Move capture : captures) {
+			GamePosition child = node.applyMove(capture);
+			int score;
+			if (child.getCurrentPlayer() == node.getCurrentPlayer())
+				score = quiescence(child, alpha, beta, ply + 1);
+			else
+				score = -quiescence(child, -beta, -alpha, ply + 1);
+			if (score > best) {
+				best = score;
+				if (score > alpha)
+					alpha = score;
+				if (alpha >= beta)
+					break;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Get the moves available to the current player. If the player is in the
+	 * middle of a multiple capture, only further captures by the capturing
+	 * piece are returned.
+	 *
+	 * @param position
+	 *            A game position.
+	 * @return All moves available to the current player.
+	 */
+	public static ArrayList<Move> generateMoves(GamePosition position) {
+		if (position.doubleCaptureAvailible())
+			return position.getValidCaptures(position.getLastUsedToCapture());
+		return position.getAllValidMoves();
+	}
+
+	/**
+	 * Get the captures available to the current player, with the same
+	 * restriction for multiple captures as generateMoves.
+	 */
+	private static ArrayList<Move> generateCaptures(GamePosition position) {
+		if (position.doubleCaptureAvailible())
+			return position.getValidCaptures(position.getLastUsedToCapture());
+		return position.getAllValidCaptures();
+	}
+
+	/**
+	 * Thrown when the time limit of a search is reached.
+	 */
+	private static class SearchAborted extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		SearchAborted() {
+			super(null, null, false, false);
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package checkers.ai;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Tunable parameters of the engine's selective search. Options can be set
+ * through the setters, or loaded from a properties file with the keys listed
+ * in the documentation of the load method.
+ *
+ * @author 090010514
+ */
+public class EngineOptions {
+	private boolean lateMoveReductions;
+	private int reductionMinDepth;
+	private int reductionMoveIndex;
+	private int reduction;
+	private boolean futilityPruning;
+	private int[] futilityMargins;
+
+	/**
+	 * Create engine options with the default values.
+	 */
+	public EngineOptions() {
+		lateMoveReductions = true;
+		reductionMinDepth = 3;
+		reductionMoveIndex = 3;
+		reduction = 1;
+		futilityPruning = true;
+		futilityMargins = new int[] { 0, 8, 16 };
+	}
+
+	/**
+	 * @return Whether or not late quiet moves are searched with reduced depth.
+	 */
+	public boolean getLateMoveReductions() {
+		return lateMoveReductions;
+	}
+
+	public void setLateMoveReductions(boolean lateMoveReductions) {
+		this.lateMoveReductions = lateMoveReductions;
+	}
+
+	/**
+	 * @return The least remaining depth at which moves are reduced.
+	 */
+	public int getReductionMinDepth() {
+		return reductionMinDepth;
+	}
+
+	public void setReductionMinDepth(int reductionMinDepth) {
+		this.reductionMinDepth = reductionMinDepth;
+	}
+
+	/**
+	 * @return The index (in search order) of the first move which may be
+	 *         reduced.
+	 */
+	public int getReductionMoveIndex() {
+		return reductionMoveIndex;
+	}
+
+	public void setReductionMoveIndex(int reductionMoveIndex) {
+		this.reductionMoveIndex = reductionMoveIndex;
+	}
+
+	/**
+	 * @return The number of moves by which the depth of a late move is
+	 *         reduced.
+	 */
+	public int getReduction() {
+		return reduction;
+	}
+
+	public void setReduction(int reduction) {
+		this.reduction = reduction;
+	}
+
+	/**
+	 * @return Whether or not hopeless quiet moves near the leaves are pruned.
+	 */
+	public boolean getFutilityPruning() {
+		return futilityPruning;
+	}
+
+	public void setFutilityPruning(boolean futilityPruning) {
+		this.futilityPruning = futilityPruning;
+	}
+
+	/**
+	 * Get the futility margins. Element d is the margin used at remaining
+	 * depth d; no pruning is done at depths beyond the end of the array.
+	 *
+	 * @return The futility margins indexed by remaining depth.
+	 */
+	public int[] getFutilityMargins() {
+		return futilityMargins;
+	}
+
+	public void setFutilityMargins(int[] futilityMargins) {
+		this.futilityMargins = futilityMargins;
+	}
+
+	/**
+	 * Get the futility margin for a remaining depth.
+	 *
+	 * @param depth
+	 *            A remaining depth.
+	 * @return The margin, or -1 if no pruning should be done at that depth.
+	 */
+	public int getFutilityMargin(int depth) {
+		if (!futilityPruning || depth <= 0 || depth >= futilityMargins.length)
+			return -1;
+		return futilityMargins[depth];
+	}
+
+	/**
+	 * Load engine options from a properties file. Options which are not in
+	 * the file keep their default values. The keys are:
+	 *
+	 * <pre>
+	 * lmr.enabled        true or false
+	 * lmr.minDepth       least remaining depth at which moves are reduced
+	 * lmr.moveIndex      index of the first move which may be reduced
+	 * lmr.reduction      number of moves to reduce the depth by
+	 * futility.enabled   true or false
+	 * futility.margins   comma separated margins for depth 1, 2, ...
+	 * </pre>
+	 *
+	 * @param file
+	 *            A properties file.
+	 * @return The loaded options.
+	 * @throws IOException
+	 *             If a reading error occurs or a value is malformed.
+	 */
+	public static EngineOptions load(File file) throws IOException {
+		Properties properties = new Properties();
+		FileInputStream in = new FileInputStream(file);
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		EngineOptions options = new EngineOptions();
+		try {
+			String value = properties.getProperty("lmr.enabled");
+			if (value != null)
+				options.setLateMoveReductions(Boolean.parseBoolean(value));
+			value = properties.getProperty("lmr.minDepth");
+			if (value != null)
+				options.setReductionMinDepth(Integer.parseInt(value.trim()));
+			value = properties.getProperty("lmr.moveIndex");
+			if (value != null)
+				options.setReductionMoveIndex(Integer.parseInt(value.trim()));
+			value = properties.getProperty("lmr.reduction");
+			if (value != null)
+				options.setReduction(Integer.parseInt(value.trim()));
+			value = properties.getProperty("futility.enabled");
+			if (value != null)
+				options.setFutilityPruning(Boolean.parseBoolean(value));
+			value = properties.getProperty("futility.margins");
+			if (value != null) {
+				String[] margins = value.split(",");
+				int[] futilityMargins = new int[margins.length + 1];
+				for (int i = 0; i < margins.length; i++)
+					futilityMargins[i + 1] = Integer.parseInt(margins[i].trim());
+				options.setFutilityMargins(futilityMargins);
+			}
+		} catch (NumberFormatException e) {
+			throw new IOException("Malformed engine option in " + file + ": "
+					+ e.getMessage());
+		}
+		return options;
+	}
+}
@@ -0,0 +1,72 @@
+package checkers.ai;
+
+/**
+ * A direct-mapped cache of static evaluations, indexed by the Zobrist key of
+ * the position. Each entry is a single long holding the upper bits of the key
+ * and the score, so a lookup touches one array element. An entry is simply
+ * overwritten by the next position mapping to the same slot.
+ *
+ * The static evaluation only depends on the pieces and the player to move,
+ * which is exactly what the key covers, so entries never become stale.
+ *
+ * @author 090010514
+ */
+public class EvaluationCache {
+	/**
+	 * Returned by probe if the position is not in the cache.
+	 */
+	public static final int MISSING = Integer.MIN_VALUE;
+
+	// the score is kept in the low SCORE_BITS bits, the key in the rest
+	private static final int SCORE_BITS = 16;
+	private static final long SCORE_MASK = (1L << SCORE_BITS) - 1;
+
+	private final long[] entries;
+	private final int mask;
+
+	/**
+	 * Create an evaluation cache.
+	 *
+	 * @param bits
+	 *            The cache holds 2^bits entries.
+	 */
+	public EvaluationCache(int bits) {
+		entries = new long[1 << bits];
+		mask = entries.length - 1;
+	}
+
+	/**
+	 * Remove all entries from the cache.
+	 */
+	public void clear() {
+		for (int i = 0; i < entries.length; i++)
+			entries[i] = 0;
+	}
+
+	/**
+	 * Look up the evaluation of a position.
+	 *
+	 * @param key
+	 *            The key of a position.
+	 * @return The cached evaluation, or MISSING.
+	 */
+	public int probe(long key) {
+		long entry = entries[(int) key & mask];
+		if (entry == 0 || (entry ^ key) >>> SCORE_BITS != 0)
+			return MISSING;
+		// sign extend the score
+		return (short) entry;
+	}
+
+	/**
+	 * Store the evaluation of a position.
+	 *
+	 * @param key
+	 *            The key of the position.
+	 * @param score
+	 *            The evaluation, which must fit in a short.
+	 */
+	public void store(long key, int score) {
+		entries[(int) key & mask] = key & ~SCORE_MASK | score & SCORE_MASK;
+	}
+}
@@ -0,0 +1,23 @@
+package checkers.ai;
+
+import checkers.GamePosition;
+
+/**
+ * Static evaluation of game positions, used by the engine at the leaves of
+ * its search. Implementations must not keep any state between calls, as an
+ * evaluator may be shared by engines searching on several threads.
+ *
+ * @author 090010514
+ */
+public interface Evaluator {
+	/**
+	 * Evaluate a position.
+	 *
+	 * @param position
+	 *            A game position.
+	 * @return A static evaluation of the position from the point of view of
+	 *         its current player, represented by an integer which must fit
+	 *         in a short.
+	 */
+	int evaluate(GamePosition position);
+}
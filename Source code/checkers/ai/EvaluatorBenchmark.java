@@ -0,0 +1,107 @@
+package checkers.ai;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import checkers.GamePosition;
+import checkers.wrapper.Move;
+
+/**
+ * Command line benchmark comparing GamePosition.value with the scalar batch
+ * evaluator and the one returned by BatchEvaluator.create, on positions from
+ * random games. The scores of every evaluator are checked against
+ * GamePosition.value first. To measure the vectorised evaluator, run:
+ *
+ * <pre>
+ * java --add-modules jdk.incubator.vector -Dcheckers.vectorEvaluation=true checkers.ai.EvaluatorBenchmark [positions] [rounds]
+ * </pre>
+ *
+ * @author 090010514
+ */
+public class EvaluatorBenchmark {
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		ArrayList<GamePosition> positions = randomPositions(count, new Random(1));
+		PositionBatch batch = new PositionBatch(count);
+		int[] expected = new int[count];
+		for (int i = 0; i < count; i++) {
+			batch.add(positions.get(i));
+			expected[i] = positions.get(i).value();
+		}
+		BatchEvaluator scalar = new BatchEvaluator();
+		BatchEvaluator configured = BatchEvaluator.create();
+		check("scalar", scalar, batch, expected);
+		check(configured.getClass().getSimpleName(), configured, batch, expected);
+
+		// warm up, then time each
+		int sink = 0;
+		for (int round = 0; round < 3; round++) {
+			sink += timeValue(positions, rounds / 4, false);
+			sink += time(scalar, batch, rounds / 4, false);
+			sink += time(configured, batch, rounds / 4, false);
+		}
+		System.out.println("Nanoseconds per position:");
+		sink += timeValue(positions, rounds / 10, true);
+		sink += time(scalar, batch, rounds, true);
+		sink += time(configured, batch, rounds, true);
+		if (sink == 42)
+			System.out.println();
+	}
+
+	private static ArrayList<GamePosition> randomPositions(int count,
+			Random random) {
+		ArrayList<GamePosition> positions = new ArrayList<GamePosition>();
+		while (positions.size() < count) {
+			GamePosition position = new GamePosition();
+			position.newGame();
+			while (!position.isGameOver() && positions.size() < count) {
+				ArrayList<Move> moves = position.getAllValidMoves();
+				if (moves.size() == 0)
+					break;
+				position = position.applyMove(moves.get(random.nextInt(moves
+						.size())));
+				positions.add(position);
+			}
+		}
+		return positions;
+	}
+
+	private static void check(String name, BatchEvaluator evaluator,
+			PositionBatch batch, int[] expected) {
+		int[] scores = new int[batch.size()];
+		evaluator.evaluate(batch, scores);
+		for (int i = 0; i < scores.length; i++) {
+			if (scores[i] != expected[i])
+				throw new IllegalStateException(name + " scores position " + i
+						+ " as " + scores[i] + " instead of " + expected[i]);
+		}
+	}
+
+	private static int time(BatchEvaluator evaluator, PositionBatch batch,
+			int rounds, boolean print) {
+		int[] scores = new int[batch.size()];
+		long start = System.nanoTime();
+		for (int round = 0; round < rounds; round++)
+			evaluator.evaluate(batch, scores);
+		long elapsed = System.nanoTime() - start;
+		if (print)
+			System.out.printf("%-22s %8.2f%n", evaluator.getClass()
+					.getSimpleName(), (double) elapsed / rounds / batch.size());
+		return scores[0];
+	}
+
+	private static int timeValue(ArrayList<GamePosition> positions,
+			int rounds, boolean print) {
+		int sum = 0;
+		long start = System.nanoTime();
+		for (int round = 0; round < rounds; round++)
+			for (GamePosition position : positions)
+				sum += position.value();
+		long elapsed = System.nanoTime() - start;
+		if (print)
+			System.out.printf("%-22s %8.2f%n", "GamePosition.value",
+					(double) elapsed / rounds / positions.size());
+		return sum;
+	}
+}
@@ -0,0 +1,31 @@
+package checkers.ai;
+
+import checkers.Constants;
+import checkers.GamePosition;
+
+/**
+ * The original evaluation of the game, GamePosition.value: each piece is
+ * worth the value of its cell (see Cell.value) plus 3 for a man or 5 for a
+ * king, and a piece of the current player which can capture is worth 20
+ * more. The evaluation of a position is the worth of the current player's
+ * pieces minus that of the other player's pieces.
+ *
+ * @author 090010514
+ */
+public class HeuristicEvaluator implements Evaluator {
+	/**
+	 * The evaluator, which has no state and can be shared.
+	 */
+	public static final HeuristicEvaluator INSTANCE = new HeuristicEvaluator();
+
+	static final int MAN_VALUE = Constants.MAN_VALUE;
+	static final int KING_VALUE = Constants.KING_VALUE;
+	static final int CAPTURE_VALUE = Constants.CAPTURE_VALUE;
+
+	private HeuristicEvaluator() {
+	}
+
+	public int evaluate(GamePosition position) {
+		return position.value();
+	}
+}
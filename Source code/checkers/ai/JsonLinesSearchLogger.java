@@ -0,0 +1,85 @@
+package checkers.ai;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import checkers.Constants;
+import checkers.wrapper.Move;
+
+/**
+ * Logs the engine's searches as JSON objects, one per line, for runs without
+ * a user interface. The command line tools create one from the
+ * checkers.searchLog and checkers.searchLog.iterations system properties (see
+ * fromSystemProperties). Lines are written whole, so a logger can be shared
+ * by engines on several threads.
+ *
+ * @author 090010514
+ */
+public class JsonLinesSearchLogger implements SearchListener {
+	private final PrintStream out;
+	private final boolean logIterations;
+
+	/**
+	 * Create a new logger.
+	 *
+	 * @param out
+	 *            The stream to write to.
+	 * @param logIterations
+	 *            Whether or not to write a line for every iteration, in
+	 *            addition to a line for every search.
+	 */
+	public JsonLinesSearchLogger(PrintStream out, boolean logIterations) {
+		this.out = out;
+		this.logIterations = logIterations;
+	}
+
+	/**
+	 * Create the logger asked for by the checkers.searchLog system property,
+	 * which names where to write: stdout, stderr, or a file which is appended
+	 * to. Iterations are logged if checkers.searchLog.iterations is true.
+	 *
+	 * @return The logger, or null if the property is not set.
+	 * @throws IOException
+	 *             If the file can not be opened.
+	 */
+	public static JsonLinesSearchLogger fromSystemProperties()
+			throws IOException {
+		String destination = System.getProperty(Constants.SEARCH_LOG_PROPERTY);
+		if (destination == null)
+			return null;
+		PrintStream out;
+		if (destination.equals("stdout"))
+			out = System.out;
+		else if (destination.equals("stderr"))
+			out = System.err;
+		else
+			out = new PrintStream(new FileOutputStream(destination, true),
+					true, "UTF-8");
+		return new JsonLinesSearchLogger(out, Boolean
+				.getBoolean(Constants.SEARCH_LOG_ITERATIONS_PROPERTY));
+	}
+
+	public void iterationFinished(int depth, int score, Move best,
+			SearchStatistics statistics) {
+		if (!logIterations)
+			return;
+		int iteration = statistics.getIterations() - 1;
+		out.println("{\"event\":\"iteration\",\"depth\":" + depth
+				+ ",\"score\":" + score + ",\"move\":" + quote(best)
+				+ ",\"nodes\":" + statistics.getTotalNodes() + ",\"millis\":"
+				+ Math.round(statistics.getIterationMillis(iteration) * 1000)
+				/ 1000.0 + "}");
+	}
+
+	public void searchFinished(Move best, int score,
+			SearchStatistics statistics) {
+		out.println("{\"event\":\"search\",\"move\":" + quote(best)
+				+ ",\"score\":" + score + ",\"statistics\":"
+				+ statistics.toJson() + "}");
+	}
+
+	private static String quote(Move move) {
+		return move == null ? "null" : "\"" + move + "\"";
+	}
+}
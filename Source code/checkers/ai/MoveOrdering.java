@@ -0,0 +1,192 @@
+package checkers.ai;
+
+import java.util.ArrayList;
+
+import checkers.Constants;
+import checkers.GamePosition;
+import checkers.wrapper.Move;
+import checkers.wrapper.Piece;
+import checkers.wrapper.Player;
+
+/**
+ * MoveOrdering sorts the moves of a node so that the moves most likely to
+ * cause a cutoff are searched first: the move from the transposition table,
+ * then captures (longest capture sequence first), then the killer moves of
+ * the ply and finally the remaining moves by their history score.
+ *
+ * @author 090010514
+ */
+public class MoveOrdering {
+	/**
+	 * Encoded value used when there is no move.
+	 */
+	public static final int NO_MOVE = -1;
+	// deepest ply for which killer moves are kept
+	private static final int MAX_PLY = 64;
+
+	private static final int HASH_SCORE = 1 << 30;
+	private static final int CAPTURE_SCORE = 1 << 29;
+	private static final int KILLER_SCORE = 1 << 28;
+	// history scores are halved once they reach this value
+	private static final int HISTORY_LIMIT = 1 << 20;
+
+	private final int[][] killers;
+	// indexed by [player][from][to]
+	private final int[][][] history;
+
+	/**
+	 * Create a new MoveOrdering with empty killer and history tables.
+	 */
+	public MoveOrdering() {
+		killers = new int[MAX_PLY][2];
+		history = new int[2][32][32];
+		clearKillers();
+	}
+
+	/**
+	 * Prepare for a new search: the killer moves are cleared and history
+	 * scores are aged so that recent searches count more.
+	 */
+	public void newSearch() {
+		clearKillers();
+		ageHistory();
+	}
+
+	private void clearKillers() {
+		for (int[] killer : killers) {
+			killer[0] = NO_MOVE;
+			killer[1] = NO_MOVE;
+		}
+	}
+
+	private void ageHistory() {
+		for (int[][] player : history)
+			for (int[] from : player)
+				for (int to = 0; to < from.length; to++)
+					from[to] /= 2;
+	}
+
+	/**
+	 * Sort moves so that the most promising moves come first.
+	 *
+	 * @param node
+	 *            The position in which the moves are played.
+	 * @param moves
+	 *            The moves to sort.
+	 * @param hashMove
+	 *            The encoded move from the transposition table, or NO_MOVE.
+	 * @param ply
+	 *            The distance of the node from the root.
+	 */
+	public void order(GamePosition node, ArrayList<Move> moves, int hashMove,
+			int ply) {
+		int size = moves.size();
+		if (size < 2)
+			return;
+		int[] scores = new int[size];
+		int player = node.getCurrentPlayer().ordinal();
+		for (int i = 0; i < size; i++) {
+			Move move = moves.get(i);
+			int code = encode(move);
+			if (code == hashMove)
+				scores[i] = HASH_SCORE;
+			else if (isCapture(move))
+				scores[i] = CAPTURE_SCORE + jumpLength(node, move);
+			else if (ply < MAX_PLY && code == killers[ply][0])
+				scores[i] = KILLER_SCORE + 1;
+			else if (ply < MAX_PLY && code == killers[ply][1])
+				scores[i] = KILLER_SCORE;
+			else
+				scores[i] = history[player][code >> 5][code & 31];
+		}
+		// insertion sort, as there are rarely more than a dozen moves
+		for (int i = 1; i < size; i++) {
+			int score = scores[i];
+			Move move = moves.get(i);
+			int j = i - 1;
+			while (j >= 0 && scores[j] < score) {
+				scores[j + 1] = scores[j];
+				moves.set(j + 1, moves.get(j));
+				j--;
+			}
+			scores[j + 1] = score;
+			moves.set(j + 1, move);
+		}
+	}
+
+	/**
+	 * Record a move which caused a beta cutoff. Quiet moves become killer
+	 * moves of the ply and have their history score increased.
+	 *
+	 * @param player
+	 *            The player who made the move.
+	 * @param move
+	 *            The move.
+	 * @param depth
+	 *            The remaining depth at which the cutoff occurred.
+	 * @param ply
+	 *            The distance of the node from the root.
+	 */
+	public void cutoff(Player player, Move move, int depth, int ply) {
+		if (isCapture(move))
+			return;
+		int code = encode(move);
+		if (ply < MAX_PLY && killers[ply][0] != code) {
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = code;
+		}
+		int[] from = history[player.ordinal()][code >> 5];
+		from[code & 31] += depth * depth;
+		if (from[code & 31] > HISTORY_LIMIT)
+			ageHistory();
+	}
+
+	/**
+	 * Encode a move as an integer in the range 0-1023.
+	 *
+	 * @param move
+	 *            A move.
+	 * @return (from square) * 32 + (to square), where a square is a cell
+	 *         number minus one.
+	 */
+	public static int encode(Move move) {
+		int from = move.getFrom().getCellNumber() - 1;
+		int to = move.getDestination().getCellNumber() - 1;
+		return from << 5 | to;
+	}
+
+	/**
+	 * @return true if the move jumps over a piece, false otherwise.
+	 */
+	public static boolean isCapture(Move move) {
+		return Math.abs(move.getFrom().getRow()
+				- move.getDestination().getRow()) == 2;
+	}
+
+	/**
+	 * @return true if the move makes a man into a king, false otherwise.
+	 */
+	public static boolean isPromotion(Move move) {
+		Piece piece = move.getPiece();
+		if (piece.isKing())
+			return false;
+		int row = move.getDestination().getRow();
+		if (piece.getPlayer() == Player.BELOW)
+			return row == 0;
+		return row == Constants.ROWS - 1;
+	}
+
+	/**
+	 * Get the number of pieces captured by the longest capture sequence
+	 * starting with the given capture.
+	 */
+	private static int jumpLength(GamePosition node, Move capture) {
+		GamePosition child = node.applyMove(capture);
+		if (child.getCurrentPlayer() != node.getCurrentPlayer())
+			return 1;
+		int longest = 0;
+		for (Move next : child.getValidCaptures(child.getLastUsedToCapture()))
+			longest = Math.max(longest, jumpLength(child, next));
+		return 1 + longest;
+	}
+}
@@ -0,0 +1,95 @@
+package checkers.ai;
+
+import java.util.Arrays;
+
+import checkers.Constants;
+import checkers.GamePosition;
+import checkers.wrapper.Piece;
+import checkers.wrapper.Player;
+
+/**
+ * A batch of positions stored as bitboards, to be evaluated together by a
+ * BatchEvaluator. Each position is held in four 64-bit masks, with bit
+ * (row * 8 + col) for each cell: the pieces of the player to move, the
+ * pieces of the other player, the kings of both players, and a mask which
+ * is all ones if ABOVE is to move and all zeros otherwise. The masks are
+ * kept in separate arrays, so a range of positions can be loaded into
+ * vector registers directly.
+ *
+ * @author 090010514
+ */
+public class PositionBatch {
+	long[] own;
+	long[] opponent;
+	long[] kings;
+	long[] aboveToMove;
+	private int size;
+
+	/**
+	 * Create an empty batch.
+	 *
+	 * @param capacity
+	 *            The number of positions the batch holds before it grows.
+	 */
+	public PositionBatch(int capacity) {
+		capacity = Math.max(capacity, 1);
+		own = new long[capacity];
+		opponent = new long[capacity];
+		kings = new long[capacity];
+		aboveToMove = new long[capacity];
+	}
+
+	/**
+	 * Add a position to the batch.
+	 *
+	 * @param position
+	 *            A game position.
+	 * @return The index of the position in the batch.
+	 */
+	public int add(GamePosition position) {
+		if (size == own.length) {
+			int capacity = size * 2;
+			own = Arrays.copyOf(own, capacity);
+			opponent = Arrays.copyOf(opponent, capacity);
+			kings = Arrays.copyOf(kings, capacity);
+			aboveToMove = Arrays.copyOf(aboveToMove, capacity);
+		}
+		Player player = position.getCurrentPlayer();
+		long ownMask = 0;
+		long opponentMask = 0;
+		long kingMask = 0;
+		for (int row = 0; row < Constants.ROWS; row++) {
+			for (int col = 0; col < Constants.COLS; col++) {
+				Piece piece = position.get(row, col);
+				if (piece == null)
+					continue;
+				long bit = 1L << (row * Constants.COLS + col);
+				if (piece.getPlayer() == player)
+					ownMask |= bit;
+				else
+					opponentMask |= bit;
+				if (piece.isKing())
+					kingMask |= bit;
+			}
+		}
+		own[size] = ownMask;
+		opponent[size] = opponentMask;
+		kings[size] = kingMask;
+		aboveToMove[size] = player == Player.ABOVE ? -1L : 0;
+		return size++;
+	}
+
+	/**
+	 * @return The number of positions in the batch.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Remove all positions from the batch, keeping its capacity.
+	 */
+	public void clear() {
+		size = 0;
+	}
+}
@@ -0,0 +1,39 @@
+package checkers.ai;
+
+import checkers.wrapper.Move;
+
+/**
+ * The listener interface for receiving progress of the engine's searches.
+ * Listeners are called on the thread running the search.
+ *
+ * @author 090010514
+ */
+public interface SearchListener {
+	/**
+	 * Invoked when an iteration of the search has finished.
+	 *
+	 * @param depth
+	 *            The depth of the finished iteration.
+	 * @param score
+	 *            The score of the root position.
+	 * @param best
+	 *            The best move found so far.
+	 * @param statistics
+	 *            The statistics of the search so far.
+	 */
+	public void iterationFinished(int depth, int score, Move best,
+			SearchStatistics statistics);
+
+	/**
+	 * Invoked when the search has finished.
+	 *
+	 * @param best
+	 *            The best move, or null if there are no moves.
+	 * @param score
+	 *            The score of the root position.
+	 * @param statistics
+	 *            The statistics of the search.
+	 */
+	public void searchFinished(Move best, int score,
+			SearchStatistics statistics);
+}
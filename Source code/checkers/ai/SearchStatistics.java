@@ -0,0 +1,364 @@
+package checkers.ai;
+
+import java.util.ArrayList;
+
+/**
+ * Counters collected during a single search. The counters are plain fields
+ * which are only updated by the thread running the search; statistics of
+ * searches run on other threads can be combined with merge once they are
+ * finished.
+ *
+ * @author 090010514
+ */
+public class SearchStatistics {
+	/**
+	 * Number of move indexes for which beta cutoffs are counted separately.
+	 * Cutoffs by later moves are counted together in the last index.
+	 */
+	public static final int CUTOFF_INDEXES = 8;
+
+	// positions searched by the main (full-width) search
+	private long nodes;
+	// positions searched by the quiescence search
+	private long quiescenceNodes;
+	// transposition table lookups, and how many found the position
+	private long tableProbes;
+	private long tableHits;
+	// static evaluations, and how many were found in the evaluation cache
+	private long evaluations;
+	private long evaluationHits;
+	// searches cut short by a score from the transposition table
+	private long tableCutoffs;
+	// beta cutoffs in the main search, by the index of the move
+	private long[] betaCutoffs;
+	// moves searched again after failing high on a null window
+	private long principalVariationResearches;
+	// root searches repeated because the score fell outside the window
+	private long aspirationResearches;
+	// late moves searched with reduced depth
+	private long reductions;
+	// reduced moves searched again with full depth
+	private long reductionResearches;
+	// quiet moves pruned near the leaves
+	private long futilityPrunes;
+	// greatest distance from the root reached, including quiescence
+	private int selectiveDepth;
+	// time taken by each iteration in nanoseconds
+	private ArrayList<Long> iterationTimes;
+	private long startTime;
+	private long elapsedTime;
+
+	/**
+	 * Create new empty search statistics.
+	 */
+	public SearchStatistics() {
+		betaCutoffs = new long[CUTOFF_INDEXES];
+		iterationTimes = new ArrayList<Long>();
+		reset();
+	}
+
+	/**
+	 * Reset all counters to zero and start timing a new search.
+	 */
+	public void reset() {
+		nodes = 0;
+		quiescenceNodes = 0;
+		tableProbes = 0;
+		tableHits = 0;
+		tableCutoffs = 0;
+		evaluations = 0;
+		evaluationHits = 0;
+		for (int i = 0; i < CUTOFF_INDEXES; i++)
+			betaCutoffs[i] = 0;
+		principalVariationResearches = 0;
+		aspirationResearches = 0;
+		reductions = 0;
+		reductionResearches = 0;
+		futilityPrunes = 0;
+		selectiveDepth = 0;
+		iterationTimes.clear();
+		startTime = System.nanoTime();
+		elapsedTime = 0;
+	}
+
+	/**
+	 * Add the counters of another (finished) search to these statistics.
+	 *
+	 * @param other
+	 *            The statistics of another search.
+	 */
+	public void merge(SearchStatistics other) {
+		nodes += other.nodes;
+		quiescenceNodes += other.quiescenceNodes;
+		tableProbes += other.tableProbes;
+		tableHits += other.tableHits;
+		tableCutoffs += other.tableCutoffs;
+		evaluations += other.evaluations;
+		evaluationHits += other.evaluationHits;
+		for (int i = 0; i < CUTOFF_INDEXES; i++)
+			betaCutoffs[i] += other.betaCutoffs[i];
+		principalVariationResearches += other.principalVariationResearches;
+		aspirationResearches += other.aspirationResearches;
+		reductions += other.reductions;
+		reductionResearches += other.reductionResearches;
+		futilityPrunes += other.futilityPrunes;
+		selectiveDepth = Math.max(selectiveDepth, other.selectiveDepth);
+		elapsedTime += other.elapsedTime;
+	}
+
+	void countNode(int ply) {
+		nodes++;
+		if (ply > selectiveDepth)
+			selectiveDepth = ply;
+	}
+
+	void countQuiescenceNode(int ply) {
+		quiescenceNodes++;
+		if (ply > selectiveDepth)
+			selectiveDepth = ply;
+	}
+
+	void countTableProbe(boolean hit) {
+		tableProbes++;
+		if (hit)
+			tableHits++;
+	}
+
+	void countEvaluation(boolean cached) {
+		evaluations++;
+		if (cached)
+			evaluationHits++;
+	}
+
+	void countTableCutoff() {
+		tableCutoffs++;
+	}
+
+	void countBetaCutoff(int moveIndex) {
+		betaCutoffs[Math.min(moveIndex, CUTOFF_INDEXES - 1)]++;
+	}
+
+	void countPrincipalVariationResearch() {
+		principalVariationResearches++;
+	}
+
+	void countAspirationResearch() {
+		aspirationResearches++;
+	}
+
+	void countReduction() {
+		reductions++;
+	}
+
+	void countReductionResearch() {
+		reductionResearches++;
+	}
+
+	void countFutilityPrune() {
+		futilityPrunes++;
+	}
+
+	/**
+	 * Record that an iteration of the search has finished.
+	 */
+	void iterationFinished() {
+		long now = System.nanoTime();
+		long previous = startTime;
+		for (long time : iterationTimes)
+			previous += time;
+		iterationTimes.add(now - previous);
+		elapsedTime = now - startTime;
+	}
+
+	/**
+	 * Record that the search has finished.
+	 */
+	void searchFinished() {
+		elapsedTime = System.nanoTime() - startTime;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	public long getQuiescenceNodes() {
+		return quiescenceNodes;
+	}
+
+	/**
+	 * @return The total number of positions searched.
+	 */
+	public long getTotalNodes() {
+		return nodes + quiescenceNodes;
+	}
+
+	public long getTableProbes() {
+		return tableProbes;
+	}
+
+	public long getTableHits() {
+		return tableHits;
+	}
+
+	public long getTableCutoffs() {
+		return tableCutoffs;
+	}
+
+	public long getEvaluations() {
+		return evaluations;
+	}
+
+	public long getEvaluationHits() {
+		return evaluationHits;
+	}
+
+	/**
+	 * @return The fraction of static evaluations found in the evaluation
+	 *         cache, between 0 and 1.
+	 */
+	public double getEvaluationHitRate() {
+		if (evaluations == 0)
+			return 0;
+		return (double) evaluationHits / evaluations;
+	}
+
+	/**
+	 * @return The total number of beta cutoffs in the main search.
+	 */
+	public long getBetaCutoffs() {
+		long total = 0;
+		for (long cutoffs : betaCutoffs)
+			total += cutoffs;
+		return total;
+	}
+
+	/**
+	 * Get the number of beta cutoffs caused by the move searched at a given
+	 * index. The last index counts all later moves too.
+	 *
+	 * @param moveIndex
+	 *            An index between 0 and CUTOFF_INDEXES - 1.
+	 * @return The number of beta cutoffs by moves at the index.
+	 */
+	public long getBetaCutoffs(int moveIndex) {
+		return betaCutoffs[moveIndex];
+	}
+
+	public long getPrincipalVariationResearches() {
+		return principalVariationResearches;
+	}
+
+	public long getAspirationResearches() {
+		return aspirationResearches;
+	}
+
+	public long getReductions() {
+		return reductions;
+	}
+
+	public long getReductionResearches() {
+		return reductionResearches;
+	}
+
+	public long getFutilityPrunes() {
+		return futilityPrunes;
+	}
+
+	public int getSelectiveDepth() {
+		return selectiveDepth;
+	}
+
+	/**
+	 * @return The number of iterations finished.
+	 */
+	public int getIterations() {
+		return iterationTimes.size();
+	}
+
+	/**
+	 * Get the time taken by an iteration.
+	 *
+	 * @param iteration
+	 *            An iteration, starting at 0 for the depth 1 search.
+	 * @return The time taken in milliseconds.
+	 */
+	public double getIterationMillis(int iteration) {
+		return iterationTimes.get(iteration) / 1e6;
+	}
+
+	/**
+	 * @return The time taken by the search in milliseconds.
+	 */
+	public double getElapsedMillis() {
+		return elapsedTime / 1e6;
+	}
+
+	/**
+	 * @return The number of positions searched per second.
+	 */
+	public long getNodesPerSecond() {
+		if (elapsedTime == 0)
+			return 0;
+		return (long) (getTotalNodes() * 1e9 / elapsedTime);
+	}
+
+	/**
+	 * Get the fraction of beta cutoffs which were caused by the first move
+	 * searched, which shows how good the move ordering is.
+	 *
+	 * @return A number between 0 and 1.
+	 */
+	public double getFirstMoveCutoffRate() {
+		long total = getBetaCutoffs();
+		if (total == 0)
+			return 0;
+		return (double) betaCutoffs[0] / total;
+	}
+
+	/**
+	 * Returns these statistics as a JSON object.
+	 *
+	 * @return A JSON object on a single line.
+	 */
+	public String toJson() {
+		StringBuilder sb = new StringBuilder("{");
+		sb.append("\"nodes\":").append(nodes);
+		sb.append(",\"quiescenceNodes\":").append(quiescenceNodes);
+		sb.append(",\"tableProbes\":").append(tableProbes);
+		sb.append(",\"tableHits\":").append(tableHits);
+		sb.append(",\"tableCutoffs\":").append(tableCutoffs);
+		sb.append(",\"evaluations\":").append(evaluations);
+		sb.append(",\"evaluationHits\":").append(evaluationHits);
+		sb.append(",\"betaCutoffs\":[");
+		for (int i = 0; i < CUTOFF_INDEXES; i++) {
+			if (i > 0)
+				sb.append(',');
+			sb.append(betaCutoffs[i]);
+		}
+		sb.append("],\"pvsResearches\":").append(principalVariationResearches);
+		sb.append(",\"aspirationResearches\":").append(aspirationResearches);
+		sb.append(",\"reductions\":").append(reductions);
+		sb.append(",\"reductionResearches\":").append(reductionResearches);
+		sb.append(",\"futilityPrunes\":").append(futilityPrunes);
+		sb.append(",\"selectiveDepth\":").append(selectiveDepth);
+		sb.append(",\"iterationMillis\":[");
+		for (int i = 0; i < iterationTimes.size(); i++) {
+			if (i > 0)
+				sb.append(',');
+			sb.append(Math.round(getIterationMillis(i) * 1000) / 1000.0);
+		}
+		sb.append("],\"elapsedMillis\":").append(
+				Math.round(getElapsedMillis() * 1000) / 1000.0);
+		sb.append(",\"nps\":").append(getNodesPerSecond());
+		return sb.append('}').toString();
+	}
+
+	/**
+	 * Returns a short summary of these statistics, suitable for a status bar.
+	 */
+	public String toString() {
+		return getIterations() + "/" + selectiveDepth + " ply, "
+				+ getTotalNodes() + " nodes, " + getNodesPerSecond() / 1000
+				+ " kN/s";
+	}
+}
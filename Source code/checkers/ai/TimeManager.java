@@ -0,0 +1,156 @@
+package checkers.ai;
+
+import checkers.wrapper.Move;
+
+/**
+ * TimeManager decides how long the engine may think about a move when playing
+ * with a clock. Each move gets a soft limit, a share of the remaining time plus
+ * most of the increment, after which no new iteration is started, and a hard
+ * limit at which the search is stopped. The soft limit is extended while the
+ * search is unstable, i.e. when the best move changes between iterations or
+ * the score drops.
+ *
+ * @author 090010514
+ */
+public class TimeManager {
+	// number of moves the remaining time is assumed to be shared between
+	private static final int MOVES_TO_GO = 30;
+	// time kept in reserve so the clock never runs out, in milliseconds
+	private static final long SAFETY_MARGIN = 50;
+	// the hard limit is at most this many times the soft limit
+	private static final int HARD_FACTOR = 4;
+	// factor the soft limit is extended by when the best move changes
+	private static final double CHANGE_EXTENSION = 1.5;
+	// factor the soft limit is extended by when the score drops
+	private static final double DROP_EXTENSION = 2;
+	// largest total extension of the soft limit
+	private static final double MAX_EXTENSION = 3;
+	// a score falling by at least this much counts as a drop
+	private static final int SCORE_DROP = 15;
+	/*
+	 * An iteration takes a few times longer than the previous one, so a new
+	 * iteration is not started once this fraction of the soft limit is used.
+	 */
+	private static final double ITERATION_FRACTION = 0.6;
+
+	private long remaining;
+	private long increment;
+	private long softLimit;
+	private long hardLimit;
+	private double extension;
+	private long startTime;
+	private int lastMove;
+	private int lastScore;
+
+	/**
+	 * Create a new time manager.
+	 *
+	 * @param remaining
+	 *            The time left on the engine's clock in milliseconds.
+	 * @param increment
+	 *            The time added to the clock after every move in milliseconds.
+	 */
+	public TimeManager(long remaining, long increment) {
+		this.remaining = remaining;
+		this.increment = increment;
+	}
+
+	/**
+	 * Update the time left on the engine's clock, e.g. before every move.
+	 *
+	 * @param remaining
+	 *            The time left on the engine's clock in milliseconds.
+	 */
+	public void setRemaining(long remaining) {
+		this.remaining = remaining;
+	}
+
+	public long getRemaining() {
+		return remaining;
+	}
+
+	public long getIncrement() {
+		return increment;
+	}
+
+	/**
+	 * Start timing a move and allocate time to it.
+	 *
+	 * @param legalMoves
+	 *            The number of legal moves. With a single legal move no time
+	 *            is allocated at all.
+	 */
+	public void startMove(int legalMoves) {
+		startTime = System.nanoTime();
+		extension = 1;
+		lastMove = MoveOrdering.NO_MOVE;
+		long available = Math.max(remaining - SAFETY_MARGIN, 0);
+		if (legalMoves <= 1) {
+			softLimit = 0;
+			hardLimit = 0;
+			return;
+		}
+		softLimit = Math.min(available / MOVES_TO_GO + increment * 3 / 4,
+				available);
+		hardLimit = Math.min(softLimit * HARD_FACTOR, available / 2
+				+ increment);
+		hardLimit = Math.max(Math.min(hardLimit, available), softLimit);
+		// a limit of 0 would mean no limit to the engine
+		hardLimit = Math.max(hardLimit, 1);
+	}
+
+	/**
+	 * @return The soft limit of the current move in milliseconds, without
+	 *         extensions.
+	 */
+	public long getSoftLimit() {
+		return softLimit;
+	}
+
+	/**
+	 * @return The hard limit of the current move in milliseconds.
+	 */
+	public long getHardLimit() {
+		return hardLimit;
+	}
+
+	/**
+	 * @return The time spent on the current move in milliseconds.
+	 */
+	public long getElapsedMillis() {
+		return (System.nanoTime() - startTime) / 1000000;
+	}
+
+	/**
+	 * Record the result of a finished iteration, extending the soft limit if
+	 * the search is unstable, and decide whether to start another iteration.
+	 *
+	 * @param best
+	 *            The best move found by the iteration.
+	 * @param score
+	 *            The score of the best move.
+	 * @return true if there is time for another iteration, false otherwise.
+	 */
+	public boolean iterationFinished(Move best, int score) {
+		int move = MoveOrdering.encode(best);
+		if (lastMove != MoveOrdering.NO_MOVE) {
+			if (move != lastMove)
+				extension *= CHANGE_EXTENSION;
+			if (score <= lastScore - SCORE_DROP)
+				extension *= DROP_EXTENSION;
+			extension = Math.min(extension, MAX_EXTENSION);
+		}
+		lastMove = move;
+		lastScore = score;
+		long target = Math.min((long) (softLimit * extension), hardLimit);
+		return getElapsedMillis() < target * ITERATION_FRACTION;
+	}
+
+	/**
+	 * Take the time spent on the current move off the clock and add the
+	 * increment.
+	 */
+	public void moveFinished() {
+		remaining = Math.max(remaining - getElapsedMillis(), 0) + increment;
+	}
+}
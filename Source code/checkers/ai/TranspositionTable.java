@@ -0,0 +1,128 @@
+package checkers.ai;
+
+/**
+ * A hash table of previously searched positions, indexed by the Zobrist key of
+ * the position. Each entry stores the depth searched, the score and what kind
+ * of bound it is, and the best move found.
+ *
+ * @author 090010514
+ */
+public class TranspositionTable {
+	// the score is exact
+	public static final int EXACT = 0;
+	// the score is a lower bound (the search failed high)
+	public static final int LOWER = 1;
+	// the score is an upper bound (the search failed low)
+	public static final int UPPER = 2;
+
+	private final long[] keys;
+	private final int[] scores;
+	// depth << 16 | flag << 11 | (move + 1)
+	private final int[] info;
+	private final int mask;
+
+	/**
+	 * Create a transposition table.
+	 *
+	 * @param bits
+	 *            The table holds 2^bits entries.
+	 */
+	public TranspositionTable(int bits) {
+		int size = 1 << bits;
+		keys = new long[size];
+		scores = new int[size];
+		info = new int[size];
+		mask = size - 1;
+	}
+
+	/**
+	 * Remove all entries from the table.
+	 */
+	public void clear() {
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = 0;
+			info[i] = 0;
+		}
+	}
+
+	/**
+	 * Look up a position.
+	 *
+	 * @param key
+	 *            The key of a position.
+	 * @return The slot of the entry for the position, or -1 if the position is
+	 *         not in the table.
+	 */
+	public int probe(long key) {
+		int slot = (int) key & mask;
+		if (keys[slot] == key && info[slot] != 0)
+			return slot;
+		return -1;
+	}
+
+	public int getDepth(int slot) {
+		return info[slot] >>> 16;
+	}
+
+	public int getFlag(int slot) {
+		return (info[slot] >> 11) & 3;
+	}
+
+	/**
+	 * @return The encoded best move of an entry, or MoveOrdering.NO_MOVE.
+	 */
+	public int getMove(int slot) {
+		return (info[slot] & 0x7FF) - 1;
+	}
+
+	/**
+	 * Get the score of an entry, as seen from a node at the given ply.
+	 */
+	public int getScore(int slot, int ply) {
+		int score = scores[slot];
+		if (score > Engine.WIN_BOUND)
+			return score - ply;
+		if (score < -Engine.WIN_BOUND)
+			return score + ply;
+		return score;
+	}
+
+	/**
+	 * Store the result of searching a position. An existing entry for the
+	 * same position is only replaced by a search of at least the same depth.
+	 *
+	 * @param key
+	 *            The key of the position.
+	 * @param depth
+	 *            The depth the position was searched to.
+	 * @param score
+	 *            The score of the position.
+	 * @param flag
+	 *            EXACT, LOWER or UPPER.
+	 * @param move
+	 *            The encoded best move, or MoveOrdering.NO_MOVE.
+	 * @param ply
+	 *            The distance of the position from the root of the search.
+	 */
+	public void store(long key, int depth, int score, int flag, int move,
+			int ply) {
+		int slot = (int) key & mask;
+		if (keys[slot] == key && info[slot] != 0 && getDepth(slot) > depth)
+			return;
+		keys[slot] = key;
+		scores[slot] = toTable(score, ply);
+		info[slot] = depth << 16 | flag << 11 | (move + 1);
+	}
+
+	/**
+	 * Win scores depend on the distance from the root, so they are stored as
+	 * the distance from the stored position instead.
+	 */
+	private static int toTable(int score, int ply) {
+		if (score > Engine.WIN_BOUND)
+			return score + ply;
+		if (score < -Engine.WIN_BOUND)
+			return score - ply;
+		return score;
+	}
+}
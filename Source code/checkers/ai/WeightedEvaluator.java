@@ -0,0 +1,218 @@
+package checkers.ai;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import checkers.Constants;
+import checkers.GamePosition;
+import checkers.wrapper.Cell;
+import checkers.wrapper.Piece;
+import checkers.wrapper.Player;
+
+/**
+ * An evaluation with the same terms as HeuristicEvaluator, but with weights
+ * which are given to it, e.g. by a tuning program: the worth of a man, of a
+ * king, of a piece with a capture, and of a piece on each square. The weights
+ * of the squares are given for the player starting on squares 21-32 (BELOW);
+ * they are mirrored for the other player, so square 1 for one player is
+ * square 32 for the other.
+ *
+ * Weights are loaded from a properties file with the keys listed in the
+ * documentation of the load method.
+ *
+ * @author 090010514
+ */
+public class WeightedEvaluator implements Evaluator {
+	/**
+	 * Number of squares of the board, and so of square weights.
+	 */
+	public static final int SQUARES = Constants.ROWS * Constants.COLS / 2;
+	// number of pieces each player starts with
+	private static final int PIECES = 12;
+
+	private final int man;
+	private final int king;
+	private final int capture;
+	private final int[] squares;
+	// square weights by row * COLS + col, for the pieces of each player
+	private final int[] below;
+	private final int[] above;
+
+	/**
+	 * Create an evaluator with the weights of HeuristicEvaluator.
+	 */
+	public WeightedEvaluator() {
+		this(HeuristicEvaluator.MAN_VALUE, HeuristicEvaluator.KING_VALUE,
+				HeuristicEvaluator.CAPTURE_VALUE, cellValues());
+	}
+
+	/**
+	 * Create an evaluator.
+	 *
+	 * @param man
+	 *            The worth of a man.
+	 * @param king
+	 *            The worth of a king.
+	 * @param capture
+	 *            The worth of a piece of the current player which can
+	 *            capture.
+	 * @param squares
+	 *            The worth of a piece on each square, from square 1 to 32 as
+	 *            seen by the player starting on squares 21-32.
+	 * @throws IllegalArgumentException
+	 *             If there are not 32 square weights, or if the weights are
+	 *             so large that a score could be mistaken for a win (see
+	 *             maxScore).
+	 */
+	public WeightedEvaluator(int man, int king, int capture, int[] squares) {
+		if (squares.length != SQUARES)
+			throw new IllegalArgumentException("Expected " + SQUARES
+					+ " square weights but got " + squares.length);
+		long max = maxScore(man, king, capture, squares);
+		if (max >= Engine.WIN_BOUND)
+			throw new IllegalArgumentException("Weights too large: scores up to "
+					+ max + " but they must stay below " + Engine.WIN_BOUND);
+		this.man = man;
+		this.king = king;
+		this.capture = capture;
+		this.squares = squares.clone();
+		below = new int[Constants.ROWS * Constants.COLS];
+		above = new int[Constants.ROWS * Constants.COLS];
+		for (int number = 1; number <= SQUARES; number++) {
+			Cell cell = Cell.fromCellNumber(number);
+			int row = cell.getRow();
+			int col = cell.getCol();
+			below[row * Constants.COLS + col] = squares[number - 1];
+			above[(Constants.ROWS - 1 - row) * Constants.COLS
+					+ (Constants.COLS - 1 - col)] = squares[number - 1];
+		}
+	}
+
+	/**
+	 * Get a bound on the magnitude of any score given by the weights: all
+	 * pieces of both players on the squares of largest weight, and all pieces
+	 * of the current player able to capture. Scores must stay below
+	 * Engine.WIN_BOUND, or the search takes them for wins, which also keeps
+	 * them within the short the evaluation cache stores.
+	 */
+	private static long maxScore(int man, int king, int capture, int[] squares) {
+		long square = 0;
+		for (int weight : squares)
+			square = Math.max(square, Math.abs((long) weight));
+		long piece = Math.max(Math.abs((long) man), Math.abs((long) king))
+				+ square;
+		return 2 * PIECES * piece + PIECES * Math.abs((long) capture);
+	}
+
+	private static int[] cellValues() {
+		int[] values = new int[SQUARES];
+		for (int number = 1; number <= SQUARES; number++)
+			values[number - 1] = Cell.fromCellNumber(number).value();
+		return values;
+	}
+
+	public int getMan() {
+		return man;
+	}
+
+	public int getKing() {
+		return king;
+	}
+
+	public int getCapture() {
+		return capture;
+	}
+
+	/**
+	 * Get the weight of a square.
+	 *
+	 * @param number
+	 *            A square between 1 and 32, as seen by the player starting on
+	 *            squares 21-32.
+	 * @return The worth of a piece on the square.
+	 */
+	public int getSquare(int number) {
+		return squares[number - 1];
+	}
+
+	public int evaluate(GamePosition position) {
+		Player player = position.getCurrentPlayer();
+		int value = 0;
+		for (int row = 0; row < Constants.ROWS; row++)
+			for (int col = 0; col < Constants.COLS; col++) {
+				Piece p = position.get(row, col);
+				if (p == null)
+					continue;
+				int[] weights = p.getPlayer() == Player.BELOW ? below : above;
+				int worth = weights[row * Constants.COLS + col]
+						+ (p.isKing() ? king : man);
+				if (p.getPlayer() != player)
+					value -= worth;
+				else if (position.hasValidCapture(row, col))
+					value += worth + capture;
+				else
+					value += worth;
+			}
+		return value;
+	}
+
+	/**
+	 * Load weights from a properties file. Weights which are not in the file
+	 * keep the values of HeuristicEvaluator. The keys are:
+	 *
+	 * <pre>
+	 * man       worth of a man
+	 * king      worth of a king
+	 * capture   worth of a piece of the current player which can capture
+	 * squares   32 comma separated weights of squares 1 to 32, as seen by
+	 *           the player starting on squares 21-32
+	 * </pre>
+	 *
+	 * @param file
+	 *            A properties file.
+	 * @return The loaded evaluator.
+	 * @throws IOException
+	 *             If a reading error occurs, a weight is malformed or the
+	 *             weights are too large.
+	 */
+	public static WeightedEvaluator load(File file) throws IOException {
+		Properties properties = new Properties();
+		FileInputStream in = new FileInputStream(file);
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		WeightedEvaluator defaults = new WeightedEvaluator();
+		try {
+			int man = weight(properties, "man", defaults.man);
+			int king = weight(properties, "king", defaults.king);
+			int capture = weight(properties, "capture", defaults.capture);
+			int[] squares = defaults.squares;
+			String value = properties.getProperty("squares");
+			if (value != null) {
+				String[] weights = value.split(",");
+				if (weights.length != SQUARES)
+					throw new IOException("Expected " + SQUARES
+							+ " square weights in " + file + " but found "
+							+ weights.length);
+				for (int i = 0; i < SQUARES; i++)
+					squares[i] = Integer.parseInt(weights[i].trim());
+			}
+			return new WeightedEvaluator(man, king, capture, squares);
+		} catch (NumberFormatException e) {
+			throw new IOException("Malformed weight in " + file + ": "
+					+ e.getMessage());
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Bad weights in " + file + ": "
+					+ e.getMessage());
+		}
+	}
+
+	private static int weight(Properties properties, String key, int def) {
+		String value = properties.getProperty(key);
+		return value != null ? Integer.parseInt(value.trim()) : def;
+	}
+}
@@ -0,0 +1,26 @@
+package checkers.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for the AI choosing and playing a move.
+ *
+ * @author 090010514
+ */
+@Name("checkers.AIMove")
+@Label("AI Move")
+@Category({ "Checkers", "Search" })
+@Description("The AI searching for and animating a move")
+@Enabled(false)
+public class AIMoveEvent extends Event {
+	@Label("Player")
+	public String player;
+
+	@Label("Move")
+	public String move;
+}
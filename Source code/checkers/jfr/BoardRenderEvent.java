@@ -0,0 +1,31 @@
+package checkers.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for drawing the board into its back buffer.
+ *
+ * @author 090010514
+ */
+@Name("checkers.BoardRender")
+@Label("Board Render")
+@Category({ "Checkers", "Rendering" })
+@Description("Drawing the board and pieces into the back buffer")
+@Enabled(false)
+public class BoardRenderEvent extends Event {
+	@Label("Picked Up")
+	@Description("Whether a picked up or animated piece was drawn")
+	public boolean pickedUp;
+
+	@Label("Suggest Moves")
+	public boolean suggestMoves;
+
+	@Label("Cells Drawn")
+	@Description("Number of cells redrawn because they had changed")
+	public int cellsDrawn;
+}
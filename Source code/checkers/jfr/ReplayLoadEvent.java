@@ -0,0 +1,26 @@
+package checkers.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for loading and playing back a replay file.
+ *
+ * @author 090010514
+ */
+@Name("checkers.ReplayLoad")
+@Label("Replay Load")
+@Category({ "Checkers", "I/O" })
+@Description("Reading and playing back a replay file")
+@Enabled(false)
+public class ReplayLoadEvent extends Event {
+	@Label("File")
+	public String file;
+
+	@Label("Moves")
+	public int moves;
+}
@@ -0,0 +1,30 @@
+package checkers.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for one iteration of the engine's search.
+ *
+ * @author 090010514
+ */
+@Name("checkers.SearchIteration")
+@Label("Search Iteration")
+@Category({ "Checkers", "Search" })
+@Description("One iteration of the iterative deepening search")
+@Enabled(false)
+public class SearchIterationEvent extends Event {
+	@Label("Depth")
+	public int depth;
+
+	@Label("Score")
+	public int score;
+
+	@Label("Nodes")
+	@Description("Positions searched by the whole search so far")
+	public long nodes;
+}
@@ -0,0 +1,46 @@
+package checkers.metrics;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing count. Increments are lock-free and spread over
+ * several cells, so many threads can count at once without contention.
+ *
+ * @author 090010514
+ */
+public class Counter extends Metric {
+	private final LongAdder count;
+
+	Counter(String name, String help) {
+		super(name, help);
+		count = new LongAdder();
+	}
+
+	/**
+	 * Increase the count by one.
+	 */
+	public void increment() {
+		count.increment();
+	}
+
+	/**
+	 * Increase the count.
+	 *
+	 * @param amount
+	 *            A non-negative amount.
+	 */
+	public void add(long amount) {
+		count.add(amount);
+	}
+
+	public long get() {
+		return count.sum();
+	}
+
+	public void write(PrintWriter out) {
+		out.println("# HELP " + getName() + " " + getHelp());
+		out.println("# TYPE " + getName() + " counter");
+		out.println(getName() + " " + get());
+	}
+}
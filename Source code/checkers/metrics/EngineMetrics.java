@@ -0,0 +1,69 @@
+package checkers.metrics;
+
+import checkers.ai.SearchListener;
+import checkers.ai.SearchStatistics;
+import checkers.wrapper.Move;
+
+/**
+ * Records the engine's searches in a metrics registry. Add an instance as a
+ * search listener of every engine whose searches should be counted.
+ *
+ * @author 090010514
+ */
+public class EngineMetrics implements SearchListener {
+	private final Histogram moveLatency;
+	private final Histogram moveNodes;
+	private final Counter nodes;
+	private final Counter tableProbes;
+	private final Counter tableHits;
+	private final Counter evaluations;
+	private final Counter evaluationHits;
+	private final Counter games;
+
+	/**
+	 * Create the engine metrics in a registry.
+	 *
+	 * @param registry
+	 *            A metrics registry.
+	 */
+	public EngineMetrics(MetricsRegistry registry) {
+		moveLatency = registry.histogram("checkers_move_latency_seconds",
+				"Time taken to search for a move.", 1e-6);
+		moveNodes = registry.histogram("checkers_move_nodes",
+				"Positions searched per move.", 1);
+		nodes = registry.counter("checkers_nodes_total",
+				"Positions searched.");
+		tableProbes = registry.counter("checkers_tt_probes_total",
+				"Transposition table lookups.");
+		tableHits = registry.counter("checkers_tt_hits_total",
+				"Transposition table lookups which found the position.");
+		evaluations = registry.counter("checkers_evaluations_total",
+				"Static evaluations of positions.");
+		evaluationHits = registry.counter("checkers_evaluation_hits_total",
+				"Static evaluations found in the evaluation cache.");
+		games = registry.counter("checkers_games_completed_total",
+				"Games played to the end.");
+	}
+
+	public void iterationFinished(int depth, int score, Move best,
+			SearchStatistics statistics) {
+	}
+
+	public void searchFinished(Move best, int score,
+			SearchStatistics statistics) {
+		moveLatency.record((long) (statistics.getElapsedMillis() * 1000));
+		moveNodes.record(statistics.getTotalNodes());
+		nodes.add(statistics.getTotalNodes());
+		tableProbes.add(statistics.getTableProbes());
+		tableHits.add(statistics.getTableHits());
+		evaluations.add(statistics.getEvaluations());
+		evaluationHits.add(statistics.getEvaluationHits());
+	}
+
+	/**
+	 * Count a game which has been played to the end.
+	 */
+	public void gameCompleted() {
+		games.increment();
+	}
+}
@@ -0,0 +1,164 @@
+package checkers.metrics;
+
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative long values, such as latencies in microseconds.
+ * As in an HDR histogram, each power of two is split into a fixed number of
+ * sub-buckets, so values are recorded with a bounded relative error (25%)
+ * over the whole range using a small, fixed amount of memory. Recording is
+ * lock-free.
+ *
+ * @author 090010514
+ */
+public class Histogram extends Metric {
+	// each power of two is split into 2^SUB_BITS buckets
+	private static final int SUB_BITS = 2;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	// values up to 2^MAX_EXPONENT are recorded exactly enough
+	private static final int MAX_EXPONENT = 40;
+	private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2)
+			* SUB_BUCKETS;
+
+	private final AtomicLongArray counts;
+	private final LongAdder sum;
+	/*
+	 * factor converting recorded values to the unit written out, as the
+	 * decimal it was written as, so e.g. 3 * 1e-6 is written as 0.000003
+	 */
+	private final BigDecimal scale;
+
+	Histogram(String name, String help, double scale) {
+		super(name, help);
+		this.scale = new BigDecimal(Double.toString(scale));
+		counts = new AtomicLongArray(BUCKETS);
+		sum = new LongAdder();
+	}
+
+	/**
+	 * Record a value.
+	 *
+	 * @param value
+	 *            A non-negative value.
+	 */
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+		counts.incrementAndGet(bucketOf(value));
+		sum.add(value);
+	}
+
+	/**
+	 * @return The number of values recorded.
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			count += counts.get(i);
+		return count;
+	}
+
+	/**
+	 * @return The sum of all values recorded.
+	 */
+	public long getSum() {
+		return sum.sum();
+	}
+
+	/**
+	 * Get an approximation of a percentile of the recorded values.
+	 *
+	 * @param percentile
+	 *            A percentile between 0 and 100.
+	 * @return The upper bound of the bucket containing the percentile, or 0
+	 *         if no values have been recorded.
+	 */
+	public long getPercentile(double percentile) {
+		long[] snapshot = snapshot();
+		long count = 0;
+		for (long c : snapshot)
+			count += c;
+		long rank = (long) Math.ceil(count * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank && seen > 0)
+				return upperBound(i);
+		}
+		return 0;
+	}
+
+	private long[] snapshot() {
+		long[] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++)
+			snapshot[i] = counts.get(i);
+		return snapshot;
+	}
+
+	/**
+	 * Writes the histogram with cumulative buckets ending just below every
+	 * power of two, up to the largest value recorded. As in Prometheus, the
+	 * le label of a bucket is the largest value it contains.
+	 */
+	public void write(PrintWriter out) {
+		String name = getName();
+		out.println("# HELP " + name + " " + getHelp());
+		out.println("# TYPE " + name + " histogram");
+		long[] snapshot = snapshot();
+		int last = BUCKETS - 1;
+		while (last > 0 && snapshot[last] == 0)
+			last--;
+		long cumulative = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			cumulative += snapshot[i];
+			// the last sub-bucket of each power of two ends just below the next
+			if (i >= SUB_BUCKETS - 1 && i % SUB_BUCKETS == SUB_BUCKETS - 1
+					&& i <= last + SUB_BUCKETS)
+				out.println(name + "_bucket{le=\""
+						+ format(upperBound(i)) + "\"} "
+						+ cumulative);
+		}
+		out.println(name + "_bucket{le=\"+Inf\"} " + cumulative);
+		out.println(name + "_sum " + format(getSum()));
+		out.println(name + "_count " + cumulative);
+	}
+
+	/**
+	 * Convert a recorded value to the unit written out, exactly.
+	 */
+	private String format(long value) {
+		BigDecimal scaled = BigDecimal.valueOf(value).multiply(scale);
+		if (scaled.signum() == 0)
+			return "0";
+		return scaled.stripTrailingZeros().toPlainString();
+	}
+
+	/**
+	 * Get the bucket of a value. Values below 2^SUB_BITS have a bucket each;
+	 * above that, the bucket is given by the position of the highest set bit
+	 * and the SUB_BITS bits following it.
+	 */
+	static int bucketOf(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int bucket = (exponent - SUB_BITS + 1) * SUB_BUCKETS
+				+ (int) ((value >> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1));
+		return Math.min(bucket, BUCKETS - 1);
+	}
+
+	/**
+	 * Get the largest value which falls into a bucket.
+	 */
+	static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+		int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		long sub = bucket % SUB_BUCKETS;
+		long width = 1L << (exponent - SUB_BITS);
+		return ((SUB_BUCKETS + sub) << (exponent - SUB_BITS)) + width - 1;
+	}
+}
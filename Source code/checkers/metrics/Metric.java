@@ -0,0 +1,43 @@
+package checkers.metrics;
+
+import java.io.PrintWriter;
+
+/**
+ * A named metric which can be written in the Prometheus text format.
+ *
+ * @author 090010514
+ */
+public abstract class Metric {
+	private final String name;
+	private final String help;
+
+	/**
+	 * Create a new metric.
+	 *
+	 * @param name
+	 *            The name of the metric, e.g. "checkers_games_completed_total".
+	 * @param help
+	 *            A description of the metric.
+	 */
+	protected Metric(String name, String help) {
+		this.name = name;
+		this.help = help;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getHelp() {
+		return help;
+	}
+
+	/**
+	 * Write this metric, including its HELP and TYPE lines, in the Prometheus
+	 * text format.
+	 *
+	 * @param out
+	 *            The writer to write to.
+	 */
+	public abstract void write(PrintWriter out);
+}
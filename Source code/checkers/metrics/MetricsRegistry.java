@@ -0,0 +1,84 @@
+package checkers.metrics;
+
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A registry of named metrics. Metrics are created on first use and shared
+ * by everyone asking for the same name.
+ *
+ * @author 090010514
+ */
+public class MetricsRegistry {
+	private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+	// sorted by name so that the output is stable
+	private final Map<String, Metric> metrics;
+
+	/**
+	 * Create a new empty registry.
+	 */
+	public MetricsRegistry() {
+		metrics = new ConcurrentSkipListMap<String, Metric>();
+	}
+
+	/**
+	 * @return The registry shared by the whole application.
+	 */
+	public static MetricsRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Get a counter, creating it if it does not exist.
+	 *
+	 * @param name
+	 *            The name of the counter.
+	 * @param help
+	 *            A description used if the counter is created.
+	 * @return The counter with the given name.
+	 */
+	public synchronized Counter counter(String name, String help) {
+		Metric metric = metrics.get(name);
+		if (metric == null) {
+			metric = new Counter(name, help);
+			metrics.put(name, metric);
+		}
+		return (Counter) metric;
+	}
+
+	/**
+	 * Get a histogram, creating it if it does not exist.
+	 *
+	 * @param name
+	 *            The name of the histogram.
+	 * @param help
+	 *            A description used if the histogram is created.
+	 * @param scale
+	 *            Factor converting recorded values to the unit of the output,
+	 *            e.g. 1e-6 when recording microseconds of a metric in seconds.
+	 * @return The histogram with the given name.
+	 */
+	public synchronized Histogram histogram(String name, String help,
+			double scale) {
+		Metric metric = metrics.get(name);
+		if (metric == null) {
+			metric = new Histogram(name, help, scale);
+			metrics.put(name, metric);
+		}
+		return (Histogram) metric;
+	}
+
+	/**
+	 * Write all metrics in the Prometheus text format.
+	 *
+	 * @param out
+	 *            The writer to write to.
+	 */
+	public void write(PrintWriter out) {
+		for (Metric metric : metrics.values())
+			metric.write(out);
+		out.flush();
+	}
+}
@@ -0,0 +1,69 @@
+package checkers.metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the metrics of a registry in the Prometheus text format on
+ * http://localhost:port/metrics, using the HTTP server built into the JDK.
+ *
+ * @author 090010514
+ */
+public class MetricsServer {
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private final HttpServer server;
+
+	/**
+	 * Create and start a metrics server listening on the loopback interface.
+	 *
+	 * @param registry
+	 *            The registry whose metrics are served.
+	 * @param port
+	 *            The port to listen on, or 0 for any free port.
+	 * @throws IOException
+	 *             If the server can not be started.
+	 */
+	public MetricsServer(final MetricsRegistry registry, int port)
+			throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress
+				.getLoopbackAddress(), port), 0);
+		server.createContext("/metrics", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					StringWriter text = new StringWriter();
+					registry.write(new PrintWriter(text));
+					byte[] body = text.toString().getBytes("UTF-8");
+					exchange.getResponseHeaders().set("Content-Type",
+							CONTENT_TYPE);
+					exchange.sendResponseHeaders(200, body.length);
+					exchange.getResponseBody().write(body);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.start();
+	}
+
+	/**
+	 * @return The port the server is listening on.
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Stop the server.
+	 */
+	public void stop() {
+		server.stop(0);
+	}
+}
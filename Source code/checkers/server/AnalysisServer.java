@@ -0,0 +1,455 @@
+package checkers.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import checkers.Constants;
+import checkers.GamePosition;
+import checkers.ai.Engine;
+import checkers.ai.Evaluator;
+import checkers.ai.HeuristicEvaluator;
+import checkers.ai.JsonLinesSearchLogger;
+import checkers.ai.SearchListener;
+import checkers.ai.TimeManager;
+import checkers.ai.WeightedEvaluator;
+import checkers.metrics.EngineMetrics;
+import checkers.metrics.MetricsRegistry;
+import checkers.metrics.MetricsServer;
+import checkers.wrapper.Move;
+
+/**
+ * AnalysisServer lets many clients analyse games at once over TCP. Every
+ * message, in both directions, is a frame consisting of a 4-byte big-endian
+ * length followed by that many bytes of UTF-8 text. Each connection has a
+ * session with its own game position. The requests are:
+ *
+ * <pre>
+ * NEW              start a new game                  -> OK
+ * MOVE m1 m2 ...   play moves, e.g. MOVE 11-15 23-19 -> OK | ERROR message
+ *                  (if any move is illegal none of them are played)
+ * GO depth         search the position               -> BEST move score nodes
+ * CLOCK ms inc     search with ms left on the clock and inc added per move
+ *                                                    -> BEST move score nodes
+ * WEIGHTS name     evaluate with the weights of a file in the server's
+ *                  weights directory (see WeightedEvaluator.load), from the
+ *                  next search on                    -> OK | ERROR message
+ * QUIT             close the connection
+ * </pre>
+ *
+ * All connections are served by a single selector thread, so idle sessions
+ * cost no threads. Requests are handled on virtual threads when the JDK
+ * supports them (otherwise on pooled threads created on demand), and
+ * searches run on a fixed number of platform threads.
+ *
+ * @author 090010514
+ */
+public class AnalysisServer implements Runnable {
+	public static final int DEFAULT_PORT = 7070;
+	// largest frame accepted from a client
+	static final int MAX_FRAME = 1 << 16;
+	// searches allowed to wait for a search thread
+	private static final int SEARCH_QUEUE = 256;
+	// deepest search a client may ask for
+	private static final int MAX_DEPTH = 20;
+
+	private final Selector selector;
+	private final ServerSocketChannel serverChannel;
+	private final ExecutorService requestExecutor;
+	private final ThreadPoolExecutor searchPool;
+	// sessions with frames to write, which the selector should watch
+	private final ConcurrentLinkedQueue<Session> writers;
+	// each search thread has its own engine
+	private final ThreadLocal<Engine> engines;
+	// evaluation used by all engines, replaced by WEIGHTS requests
+	private volatile Evaluator evaluator;
+	// added to every engine, or null
+	private volatile SearchListener searchLogger;
+	// directory WEIGHTS requests load from, or null if they are refused
+	private volatile File weightsDirectory;
+	private volatile boolean running;
+
+	/**
+	 * Create a new analysis server which only accepts connections from this
+	 * machine. It starts serving once run is called.
+	 *
+	 * @param port
+	 *            The port to listen on, or 0 for any free port.
+	 * @param searchThreads
+	 *            The number of searches which may run at once.
+	 * @throws IOException
+	 *             If the server socket can not be opened.
+	 */
+	public AnalysisServer(int port, int searchThreads) throws IOException {
+		this(InetAddress.getLoopbackAddress(), port, searchThreads);
+	}
+
+	/**
+	 * Create a new analysis server. It starts serving once run is called.
+	 *
+	 * @param address
+	 *            The address to listen on. Any client able to reach it can
+	 *            run searches.
+	 * @param port
+	 *            The port to listen on, or 0 for any free port.
+	 * @param searchThreads
+	 *            The number of searches which may run at once.
+	 * @throws IOException
+	 *             If the server socket can not be opened.
+	 */
+	public AnalysisServer(InetAddress address, int port, int searchThreads)
+			throws IOException {
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(address, port));
+		serverChannel.configureBlocking(false);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		requestExecutor = newRequestExecutor();
+		searchPool = new ThreadPoolExecutor(searchThreads, searchThreads, 0,
+				TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+						SEARCH_QUEUE));
+		writers = new ConcurrentLinkedQueue<Session>();
+		final EngineMetrics metrics = new EngineMetrics(MetricsRegistry
+				.getDefault());
+		engines = new ThreadLocal<Engine>() {
+			protected Engine initialValue() {
+				Engine engine = new Engine();
+				engine.addSearchListener(metrics);
+				if (searchLogger != null)
+					engine.addSearchListener(searchLogger);
+				return engine;
+			}
+		};
+		evaluator = HeuristicEvaluator.INSTANCE;
+		running = true;
+	}
+
+	/**
+	 * Create the executor requests are handled on: a virtual thread per task
+	 * if the JDK has virtual threads, otherwise a pool of threads which only
+	 * exist while there are requests to handle.
+	 */
+	private static ExecutorService newRequestExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod(
+					"newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (Exception e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	/**
+	 * Set a listener, such as a JsonLinesSearchLogger, to be added to the
+	 * engines of the search threads. Must be set before serving.
+	 *
+	 * @param logger
+	 *            A search listener shared by all search threads, or null.
+	 */
+	public void setSearchLogger(SearchListener logger) {
+		searchLogger = logger;
+	}
+
+	/**
+	 * Set the directory WEIGHTS requests may load weights files from. Only
+	 * plain file names are accepted, so no other file can be read.
+	 *
+	 * @param directory
+	 *            A directory, or null to refuse all WEIGHTS requests.
+	 */
+	public void setWeightsDirectory(File directory) {
+		weightsDirectory = directory;
+	}
+
+	/**
+	 * @return The port the server is listening on.
+	 */
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Serve clients until stop is called.
+	 */
+	public void run() {
+		try {
+			while (running) {
+				selector.select();
+				Session writer;
+				while ((writer = writers.poll()) != null) {
+					SelectionKey key = writer.getChannel().keyFor(selector);
+					if (key != null && key.isValid())
+						key.interestOps(key.interestOps()
+								| SelectionKey.OP_WRITE);
+				}
+				Iterator<SelectionKey> keys = selector.selectedKeys()
+						.iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					try {
+						if (key.isAcceptable())
+							accept();
+						else
+							serve(key);
+					} catch (IOException e) {
+						close(key);
+					}
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Analysis server stopped: " + e.getMessage());
+		} finally {
+			shutdown();
+		}
+	}
+
+	/**
+	 * Stop serving clients.
+	 */
+	public void stop() {
+		running = false;
+		selector.wakeup();
+	}
+
+	private void shutdown() {
+		requestExecutor.shutdownNow();
+		searchPool.shutdownNow();
+		for (SelectionKey key : selector.keys())
+			close(key);
+		try {
+			selector.close();
+		} catch (IOException e) {
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel = serverChannel.accept();
+		if (channel == null)
+			return;
+		channel.configureBlocking(false);
+		channel.register(selector, SelectionKey.OP_READ, new Session(channel));
+	}
+
+	private void serve(SelectionKey key) throws IOException {
+		final Session session = (Session) key.attachment();
+		if (key.isReadable()) {
+			String request;
+			while ((request = session.read()) != null) {
+				if (session.offer(request)) {
+					requestExecutor.execute(new Runnable() {
+						public void run() {
+							handleRequests(session);
+						}
+					});
+				}
+			}
+		}
+		if (key.isValid() && key.isWritable() && session.write())
+			key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+	}
+
+	private void close(SelectionKey key) {
+		key.cancel();
+		try {
+			key.channel().close();
+		} catch (IOException e) {
+		}
+	}
+
+	/**
+	 * Handle the queued requests of a session in order. Runs on a request
+	 * thread.
+	 */
+	private void handleRequests(Session session) {
+		String request;
+		while ((request = session.poll()) != null) {
+			String reply = handle(session, request.trim());
+			if (reply == null) {
+				try {
+					session.getChannel().close();
+				} catch (IOException e) {
+				}
+				continue;
+			}
+			session.send(reply);
+			writers.add(session);
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * Handle a single request.
+	 *
+	 * @return The reply, or null if the connection should be closed.
+	 */
+	private String handle(Session session, String request) {
+		String[] words = request.split("\\s+");
+		String command = words[0].toUpperCase();
+		GamePosition position = session.getPosition();
+		if (command.equals("NEW")) {
+			position.newGame();
+			return "OK";
+		} else if (command.equals("MOVE")) {
+			// the moves are checked on a copy, so they are played all or none
+			GamePosition played = position.clone();
+			for (int i = 1; i < words.length; i++) {
+				Move move = findMove(played, words[i]);
+				if (move == null)
+					return "ERROR illegal move " + words[i];
+				played.playMove(words[i]);
+			}
+			position.copyFrom(played);
+			return "OK";
+		} else if (command.equals("GO")) {
+			int depth;
+			try {
+				depth = Integer.parseInt(words[1]);
+			} catch (Exception e) {
+				return "ERROR usage: GO depth";
+			}
+			if (depth < 1 || depth > MAX_DEPTH)
+				return "ERROR depth must be between 1 and " + MAX_DEPTH;
+			return search(position, depth, null);
+		} else if (command.equals("CLOCK")) {
+			TimeManager clock;
+			try {
+				clock = new TimeManager(Long.parseLong(words[1]), Long
+						.parseLong(words[2]));
+			} catch (Exception e) {
+				return "ERROR usage: CLOCK remaining increment";
+			}
+			return search(position, 0, clock);
+		} else if (command.equals("WEIGHTS")) {
+			if (words.length != 2)
+				return "ERROR usage: WEIGHTS name";
+			return loadWeights(words[1]);
+		} else if (command.equals("QUIT")) {
+			return null;
+		}
+		return "ERROR unknown request " + words[0];
+	}
+
+	/**
+	 * Load the weights of a file in the weights directory. The reply does not
+	 * tell why a file could not be loaded, so clients can not probe the
+	 * server's files.
+	 */
+	private String loadWeights(String name) {
+		File directory = weightsDirectory;
+		if (directory == null)
+			return "ERROR weights can not be loaded";
+		if (!name.matches("[A-Za-z0-9_-][A-Za-z0-9._-]*"))
+			return "ERROR bad weights name";
+		try {
+			evaluator = WeightedEvaluator.load(new File(directory, name));
+		} catch (IOException e) {
+			System.err.println("Can not load weights " + name + ": "
+					+ e.getMessage());
+			return "ERROR can not load weights " + name;
+		}
+		return "OK";
+	}
+
+	/**
+	 * Run a search on the search pool and wait for its result. The search is
+	 * limited by the clock if one is given, otherwise by the depth.
+	 */
+	private String search(final GamePosition position, final int depth,
+			final TimeManager clock) {
+		Future<String> result;
+		try {
+			result = searchPool.submit(new Callable<String>() {
+				public String call() {
+					Engine engine = engines.get();
+					engine.setEvaluator(evaluator);
+					Move best;
+					if (clock != null)
+						best = engine.search(position, clock, null);
+					else
+						best = engine.search(position, depth);
+					if (best == null)
+						return "BEST none";
+					return "BEST " + best + " " + engine.getScore() + " "
+							+ engine.getStatistics().getTotalNodes();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			return "ERROR server busy";
+		}
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			result.cancel(true);
+			return "ERROR interrupted";
+		} catch (ExecutionException e) {
+			return "ERROR " + e.getCause();
+		}
+	}
+
+	/**
+	 * Find the legal move of the current player with the given String
+	 * representation.
+	 */
+	private static Move findMove(GamePosition position, String str) {
+		if (position.isGameOver())
+			return null;
+		for (Move move : Engine.generateMoves(position))
+			if (move.toString().equals(str))
+				return move;
+		return null;
+	}
+
+	/**
+	 * Runs an analysis server. Usage:
+	 *
+	 * <pre>
+	 * AnalysisServer [port] [search threads]
+	 * </pre>
+	 *
+	 * The server only accepts connections from this machine, unless another
+	 * address to listen on (e.g. 0.0.0.0 for all interfaces) is given by the
+	 * checkers.server.address system property. The metrics of the server are
+	 * served on the port given by the checkers.metrics.port system property,
+	 * if it is set. WEIGHTS requests are only accepted if the
+	 * checkers.weights.dir system property gives the directory to load from.
+	 * The searches are logged as JSON lines if the checkers.searchLog system
+	 * property is set (see JsonLinesSearchLogger.fromSystemProperties).
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime
+				.getRuntime().availableProcessors();
+		String metricsPort = System
+				.getProperty(Constants.METRICS_PORT_PROPERTY);
+		if (metricsPort != null)
+			new MetricsServer(MetricsRegistry.getDefault(), Integer
+					.parseInt(metricsPort));
+		String address = System.getProperty(Constants.SERVER_ADDRESS_PROPERTY);
+		AnalysisServer server = new AnalysisServer(
+				address != null ? InetAddress.getByName(address) : InetAddress
+						.getLoopbackAddress(), port, threads);
+		String weights = System.getProperty(Constants.WEIGHTS_DIRECTORY_PROPERTY);
+		if (weights != null)
+			server.setWeightsDirectory(new File(weights));
+		server.setSearchLogger(JsonLinesSearchLogger.fromSystemProperties());
+		System.out.println("Analysis server listening on "
+				+ server.serverChannel.socket().getLocalSocketAddress());
+		server.run();
+	}
+}
@@ -0,0 +1,139 @@
+package checkers.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import checkers.GamePosition;
+
+/**
+ * A client connection of the AnalysisServer. A session owns the game
+ * position the client is analysing, and the buffers of the connection. No
+ * thread is assigned to a session while it is idle.
+ *
+ * @author 090010514
+ */
+class Session {
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final SocketChannel channel;
+	// the length prefix of the frame being read
+	private final ByteBuffer header;
+	// the body of the frame being read, or null while reading the header
+	private ByteBuffer body;
+	private final ConcurrentLinkedQueue<ByteBuffer> outbound;
+	// requests waiting to be handled, in the order they arrived
+	private final LinkedList<String> requests;
+	// whether or not a thread is handling the requests of this session
+	private boolean busy;
+	private final GamePosition position;
+
+	Session(SocketChannel channel) {
+		this.channel = channel;
+		header = ByteBuffer.allocate(4);
+		outbound = new ConcurrentLinkedQueue<ByteBuffer>();
+		requests = new LinkedList<String>();
+		position = new GamePosition();
+		position.newGame();
+	}
+
+	SocketChannel getChannel() {
+		return channel;
+	}
+
+	GamePosition getPosition() {
+		return position;
+	}
+
+	/**
+	 * Read whatever is available from the channel and return the next
+	 * complete frame, if any. Called repeatedly by the selector thread until
+	 * it returns null.
+	 *
+	 * @return The text of a complete frame, or null if more data is needed.
+	 * @throws IOException
+	 *             If the connection is closed or the frame is too large.
+	 */
+	String read() throws IOException {
+		if (body == null) {
+			if (channel.read(header) < 0)
+				throw new IOException("Connection closed");
+			if (header.hasRemaining())
+				return null;
+			header.flip();
+			int length = header.getInt();
+			header.clear();
+			if (length < 0 || length > AnalysisServer.MAX_FRAME)
+				throw new IOException("Bad frame length " + length);
+			body = ByteBuffer.allocate(length);
+		}
+		if (body.hasRemaining() && channel.read(body) < 0)
+			throw new IOException("Connection closed");
+		if (body.hasRemaining())
+			return null;
+		String frame = new String(body.array(), UTF8);
+		body = null;
+		return frame;
+	}
+
+	/**
+	 * Queue a frame to be written to the client.
+	 *
+	 * @param text
+	 *            The text of the frame.
+	 */
+	void send(String text) {
+		byte[] bytes = text.getBytes(UTF8);
+		ByteBuffer frame = ByteBuffer.allocate(4 + bytes.length);
+		frame.putInt(bytes.length);
+		frame.put(bytes);
+		frame.flip();
+		outbound.add(frame);
+	}
+
+	/**
+	 * Write as much of the queued frames as the channel accepts.
+	 *
+	 * @return true if all queued frames have been written, false otherwise.
+	 */
+	boolean write() throws IOException {
+		ByteBuffer frame;
+		while ((frame = outbound.peek()) != null) {
+			channel.write(frame);
+			if (frame.hasRemaining())
+				return false;
+			outbound.poll();
+		}
+		return true;
+	}
+
+	/**
+	 * Add a request to the queue of this session.
+	 *
+	 * @return true if the caller should start handling the requests, i.e. if
+	 *         no thread is handling them already.
+	 */
+	synchronized boolean offer(String request) {
+		requests.add(request);
+		if (busy)
+			return false;
+		busy = true;
+		return true;
+	}
+
+	/**
+	 * Take the next request to handle.
+	 *
+	 * @return The next request, or null if there are none, in which case the
+	 *         session is no longer busy.
+	 */
+	synchronized String poll() {
+		String request = requests.poll();
+		if (request == null)
+			busy = false;
+		return request;
+	}
+}
@@ -1,11 +1,32 @@
 package checkers.wrapper;
 
+import checkers.Constants;
+
 /**
- * Wrapper class used to store the row and column of a cell.
+ * Wrapper class used to store the row and column of a cell. There is a single
+ * Cell object for each cell of the board, which is obtained with get or
+ * fromCellNumber.
  * 
  * @author 090010514
  */
 public class Cell {
+	private static final int SQUARES = Constants.ROWS * Constants.COLS / 2;
+	private static final Cell[][] CELLS = new Cell[Constants.ROWS][Constants.COLS];
+	// black cells by cell number, index 0 is unused
+	private static final Cell[] NUMBERED = new Cell[SQUARES + 1];
+	static {
+		for (int row = 0; row < Constants.ROWS; row++)
+			for (int col = 0; col < Constants.COLS; col++)
+				CELLS[row][col] = new Cell(row, col);
+		for (int number = 1; number <= SQUARES; number++) {
+			int row = (number - 1) / 4;
+			int col = 2 * (number - 4 * row - 1);
+			if (row % 2 == 0)
+				col++;
+			NUMBERED[number] = CELLS[row][col];
+		}
+	}
+
 	private final int row;
 	private final int col;
 
@@ -17,11 +38,26 @@ public class Cell {
 	 * @param col
 	 *            A column number.
 	 */
-	public Cell(int row, int col) {
+	private Cell(int row, int col) {
 		this.row = row;
 		this.col = col;
 	}
 
+	/**
+	 * Get the cell of a given row and column.
+	 * 
+	 * @param row
+	 *            A row number.
+	 * @param col
+	 *            A column number.
+	 * @return The cell, or null if the row and column are not on the board.
+	 */
+	public static Cell get(int row, int col) {
+		if (row < 0 || row >= Constants.ROWS || col < 0 || col >= Constants.COLS)
+			return null;
+		return CELLS[row][col];
+	}
+
 	public int getRow() {
 		return row;
 	}
@@ -85,17 +121,21 @@ public class Cell {
 		return this.row == other.row && this.col == other.col;
 	}
 
+	public int hashCode() {
+		return row * Constants.COLS + col;
+	}
+
 	/**
 	 * Converts a cell number to a Cell object.
 	 * 
 	 * @param cellNumber
-	 * @return The cell represented by the given cellNumber.
+	 *            A cell number between 1 and 32.
+	 * @return The cell represented by the given cellNumber, or null if there
+	 *         is no such cell.
 	 */
 	public static Cell fromCellNumber(int cellNumber) {
-		int row = (cellNumber - 1) / 4;
-		int col = 2 * (cellNumber - 4 * row - 1);
-		if (row % 2 == 0)
-			col++;
-		return new Cell(row, col);
+		if (cellNumber < 1 || cellNumber > SQUARES)
+			return null;
+		return NUMBERED[cellNumber];
 	}
 }
@@ -29,6 +29,10 @@ public class Circle extends Point {
 		this.radius = radius;
 	}
 
+	public int getRadius() {
+		return radius;
+	}
+
 	/**
 	 * Draw this circle onto a graphics context.
 	 * 
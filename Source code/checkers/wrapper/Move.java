@@ -1,25 +1,29 @@
 package checkers.wrapper;
 
 /**
- * Wrapper class used to represent a move (i.e. the piece which is to be moved
- * and the destination cell).
+ * Wrapper class used to represent a move (i.e. the piece which is to be moved,
+ * the cell it is moved from and the destination cell).
  * 
  * @author 090010514
  */
 public class Move {
 	private final Piece piece;
+	private final Cell from;
 	private final Cell destination;
 
 	/**
-	 * Create a new Move object with a given piece and destination.
+	 * Create a new Move object with a given piece, origin and destination.
 	 * 
 	 * @param piece
-	 *            A piece.
+	 *            The piece being moved.
+	 * @param from
+	 *            The cell the piece is moved from.
 	 * @param destination
 	 *            A destination cell.
 	 */
-	public Move(Piece piece, Cell destination) {
+	public Move(Piece piece, Cell from, Cell destination) {
 		this.piece = piece;
+		this.from = from;
 		this.destination = destination;
 	}
 
@@ -27,6 +31,10 @@ public class Move {
 		return piece;
 	}
 
+	public Cell getFrom() {
+		return from;
+	}
+
 	public Cell getDestination() {
 		return destination;
 	}
@@ -38,12 +46,6 @@ public class Move {
 	 * string representation would be "22-18".
 	 */
 	public String toString() {
-		Cell from = piece.getCell();
 		return from.getCellNumber() + "-" + destination.getCellNumber();
 	}
-
-	@Override
-	public Move clone() {
-		return new Move(piece.clone(), destination);
-	}
 }
@@ -1,192 +1,78 @@
 package checkers.wrapper;
 
-import java.awt.Graphics;
-
-import checkers.Board;
-import checkers.CheckersApplet;
 import checkers.Constants;
 
 /**
- * Wrapper used to store information about a piece on the board. This includes
- * the player two owns it, it's location on the board and whether or not it is a
- * king.
+ * The kinds of piece which can stand on the board: a man or a king belonging
+ * to either player. Pieces carry no location or other state, so a single
+ * instance of each kind is shared by all game positions, which keeps copying
+ * positions during a search cheap. Pieces are drawn on screen by a Sprite.
  * 
  * @author 090010514
  */
-public class Piece extends Circle {
-	public static final int RADIUS = 12;
+public enum Piece {
+	ABOVE_MAN(Player.ABOVE, false), ABOVE_KING(Player.ABOVE, true), BELOW_MAN(
+			Player.BELOW, false), BELOW_KING(Player.BELOW, true);
+
 	private final Player player;
-	private int row;
-	private int col;
-	private boolean king;
-	private CheckersApplet applet;
+	private final boolean king;
 
-	/**
-	 * Create a new Piece object with a given player, row, column and applet.
-	 * 
-	 * @param player
-	 *            The player owning this piece.
-	 * @param row
-	 *            The row number of the piece.
-	 * @param col
-	 *            The column number of the piece.
-	 * @param applet
-	 *            The CheckersApplet in which it exists.
-	 */
-	public Piece(Player player, int row, int col, CheckersApplet applet) {
-		super(getColX(col), getRowY(row), RADIUS);
+	private Piece(Player player, boolean king) {
 		this.player = player;
-		this.row = row;
-		this.col = col;
-		king = false;
-		this.applet = applet;
-	}
-
-	public Player getPlayer() {
-		return player;
-	}
-
-	public int getRow() {
-		return row;
-	}
-
-	public int getCol() {
-		return col;
+		this.king = king;
 	}
 
 	/**
-	 * Get the cell location of the Piece.
+	 * Get the piece of a given player and kind.
 	 * 
-	 * @return The cell location of the Piece.
-	 */
-	public Cell getCell() {
-		return new Cell(row, col);
-	}
-
-	/**
-	 * Draws this piece onto a graphics context. Its color will be specific for
-	 * the player who owns it.
-	 * 
-	 * @param g
-	 *            A graphics context.
+	 * @param player
+	 *            The player owning the piece.
+	 * @param king
+	 *            Whether or not the piece is a king.
+	 * @return The piece.
 	 */
-	public void draw(Graphics g) {
-		g.setColor(player.getColor());
-		super.draw(g);
-		if (isKing()) {
-			g.setColor(player.opposite().getColor());
-			int leftX = getX();
-			int midX = leftX + RADIUS;
-			int topY = getY();
-			int midY = topY + RADIUS;
-			g.fillRect(midX - 1, topY, 3, RADIUS * 2);
-			g.fillRect(leftX, midY - 1, RADIUS * 2, 3);
-		}
+	public static Piece get(Player player, boolean king) {
+		if (player == Player.ABOVE)
+			return king ? ABOVE_KING : ABOVE_MAN;
+		else
+			return king ? BELOW_KING : BELOW_MAN;
 	}
 
-	/**
-	 * Move this piece to another cell, then repaint.
-	 * 
-	 * @param row
-	 *            A row number.
-	 * @param col
-	 *            A column number.
-	 */
-	public void move(int row, int col) {
-		this.row = row;
-		this.col = col;
-		int x = getColX(col);
-		int y = getRowY(row);
-		setX(x);
-		setY(y);
+	public Player getPlayer() {
+		return player;
 	}
 
 	/**
-	 * Animate the movement of a piece to a cell of a given row and column.
+	 * Returns whether or not this piece is a king.
 	 * 
-	 * @param row
-	 *            A row number.
-	 * @param col
-	 *            A column number.
+	 * @return true if this piece is a king, false otherwise.
 	 */
-	public void animateMove(int row, int col) {
-		this.row = row;
-		this.col = col;
-		int destX = getColX(col);
-		int destY = getRowY(row);
-		int dx = destX - getX();
-		int dy = destY - getY();
-		if (dx == 0 || dy == 0)
-			new Exception().printStackTrace();
-		// absolute value of dx and dy is always the same
-		int adx = Math.abs(dx);
-		dy = 2 * dy / adx;
-		dx = 2 * dx / adx;
-		while (destX - getX() > dx || destY - getY() > dy) {
-			setX(getX() + dx);
-			setY(getY() + dy);
-			applet.repaint(this);
-			try {
-				Thread.sleep(Constants.ANIMATION_SLEEP);
-			} catch (InterruptedException e) {
-			}
-		}
-		setX(destX);
-		setY(destY);
-		applet.repaint();
+	public boolean isKing() {
+		return king;
 	}
 
 	/**
-	 * Get the x-coordinate of the left side of a column.
+	 * Get the king of the player owning this piece.
 	 * 
-	 * @param col
-	 *            A column number.
-	 * @return The x-coordinate of the left side of the column.
+	 * @return The piece this piece becomes when it is made a king.
 	 */
-	public static int getColX(int col) {
-		return Board.DEFAULT_CELL_WIDTH * col + Board.DEFAULT_CELL_WIDTH / 2
-				- RADIUS;
+	public Piece makeKing() {
+		return get(player, true);
 	}
 
 	/**
-	 * Get the y-coordinate of the top of a row.
+	 * Determines if this piece should be a king when standing in a given row.
+	 * i.e. if the player starting at the top owns the piece and the piece is in
+	 * the last row of the board, it should be a king, and the same is true for
+	 * the opposite.
 	 * 
 	 * @param row
 	 *            A row number.
-	 * @return The y-coordinate of the row.
-	 */
-	public static int getRowY(int row) {
-		return Board.DEFAULT_CELL_HEIGHT * row + Board.DEFAULT_CELL_HEIGHT / 2
-				- RADIUS;
-	}
-
-	/**
-	 * Make this piece a king.
-	 */
-	public void makeKing() {
-		king = true;
-	}
-
-	/**
-	 * Returns whether or not this piece is a king.
-	 * 
-	 * @return true if this piece is a king, false otherwise.
-	 */
-	public boolean isKing() {
-		return king;
-	}
-
-	/**
-	 * Determines if this piece should be a king given the position it is in and
-	 * the player who owns it. i.e. if the player starting at the top owns the
-	 * piece and the piece is in the last row of the board, it should be a king,
-	 * and the same is true for the opposite.
-	 * 
 	 * @return true if this piece should be a king, false otherwise.
 	 */
-	public boolean shouldBeKing() {
+	public boolean shouldBeKing(int row) {
 		return !king
-				&& ((player == Player.BELOW && row == 0) || (player == Player.ABOVE && row == 7));
+				&& ((player == Player.BELOW && row == 0) || (player == Player.ABOVE && row == Constants.ROWS - 1));
 	}
 
 	/**
@@ -205,11 +91,4 @@ public class Piece extends Circle {
 			str += "K";
 		return str;
 	}
-
-	@Override
-	public Piece clone() {
-		Piece p = new Piece(player, row, col, applet);
-		p.king = king;
-		return p;
-	}
 }
@@ -0,0 +1,64 @@
+package checkers.wrapper;
+
+import java.awt.Graphics;
+
+/**
+ * A piece as it is displayed on screen, i.e. a circle which may be dragged
+ * around by the user or animated while the piece stays in its cell on the
+ * board until the move is made. Only the user interface uses sprites.
+ * 
+ * @author 090010514
+ */
+public class Sprite extends Circle {
+	private final Piece piece;
+	private final Cell cell;
+	private final SpriteCache cache;
+
+	/**
+	 * Create a new Sprite showing a piece in a given cell.
+	 * 
+	 * @param piece
+	 *            The piece to show.
+	 * @param cell
+	 *            The cell the piece stands in.
+	 * @param cache
+	 *            The images of the pieces at the current size of the board.
+	 */
+	public Sprite(Piece piece, Cell cell, SpriteCache cache) {
+		super(cache.getColX(cell.getCol()), cache.getRowY(cell.getRow()),
+				cache.getRadius());
+		this.piece = piece;
+		this.cell = cell;
+		this.cache = cache;
+	}
+
+	public Piece getPiece() {
+		return piece;
+	}
+
+	/**
+	 * Get the cell the piece of this sprite stands in.
+	 * 
+	 * @return The cell the piece stands in.
+	 */
+	public Cell getCell() {
+		return cell;
+	}
+
+	/**
+	 * @return The images this sprite is drawn with.
+	 */
+	public SpriteCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Draws this sprite onto a graphics context at its current position.
+	 * 
+	 * @param g
+	 *            A graphics context.
+	 */
+	public void draw(Graphics g) {
+		cache.draw(g, piece, getX(), getY());
+	}
+}
@@ -0,0 +1,110 @@
+package checkers.wrapper;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * SpriteCache holds pre-rendered, antialiased images of the pieces for one
+ * cell size, so drawing a piece is a single image copy. A new cache is made
+ * whenever the board is resized.
+ * 
+ * @author 090010514
+ */
+public class SpriteCache {
+	private final int cellSize;
+	private final int radius;
+	// images of the pieces, indexed by Piece.ordinal()
+	private final BufferedImage[] images;
+
+	/**
+	 * Create the images of the pieces for a given cell size.
+	 * 
+	 * @param cellSize
+	 *            The width and height of a cell in pixels.
+	 * @param gc
+	 *            The graphics configuration of the screen the pieces are
+	 *            shown on, or null if unknown.
+	 */
+	public SpriteCache(int cellSize, GraphicsConfiguration gc) {
+		this.cellSize = cellSize;
+		radius = cellSize * 3 / 8;
+		Piece[] pieces = Piece.values();
+		images = new BufferedImage[pieces.length];
+		for (Piece piece : pieces)
+			images[piece.ordinal()] = render(piece, gc);
+	}
+
+	private BufferedImage render(Piece piece, GraphicsConfiguration gc) {
+		int size = radius * 2;
+		BufferedImage image;
+		if (gc == null)
+			image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		else
+			image = gc.createCompatibleImage(size, size,
+					Transparency.TRANSLUCENT);
+		Graphics2D g = image.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		Player player = piece.getPlayer();
+		g.setColor(player.getColor());
+		g.fillOval(0, 0, size, size);
+		if (piece.isKing()) {
+			g.setColor(player.opposite().getColor());
+			int bar = Math.max(3, size / 8);
+			g.fillRect((size - bar) / 2, 0, bar, size);
+			g.fillRect(0, (size - bar) / 2, size, bar);
+		}
+		g.dispose();
+		return image;
+	}
+
+	public int getCellSize() {
+		return cellSize;
+	}
+
+	public int getRadius() {
+		return radius;
+	}
+
+	/**
+	 * Draws a piece onto a graphics context.
+	 * 
+	 * @param g
+	 *            A graphics context.
+	 * @param piece
+	 *            A piece.
+	 * @param x
+	 *            The x-coordinate of the left side of the piece.
+	 * @param y
+	 *            The y-coordinate of the top of the piece.
+	 */
+	public void draw(Graphics g, Piece piece, int x, int y) {
+		g.drawImage(images[piece.ordinal()], x, y, null);
+	}
+
+	/**
+	 * Get the x-coordinate of the left side of a piece in a column.
+	 * 
+	 * @param col
+	 *            A column number.
+	 * @return The x-coordinate of the left side of the piece.
+	 */
+	public int getColX(int col) {
+		return cellSize * col + cellSize / 2 - radius;
+	}
+
+	/**
+	 * Get the y-coordinate of the top of a piece in a row.
+	 * 
+	 * @param row
+	 *            A row number.
+	 * @return The y-coordinate of the top of the piece.
+	 */
+	public int getRowY(int row) {
+		return cellSize * row + cellSize / 2 - radius;
+	}
+}
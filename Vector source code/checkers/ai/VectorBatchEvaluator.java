@@ -0,0 +1,98 @@
+package checkers.ai;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A BatchEvaluator which evaluates as many positions at once as fit in a
+ * vector register, using the incubating Vector API. The Vector API in this
+ * JDK has no population count, so the bits are counted with the usual SWAR
+ * steps in every lane. To keep the number of steps down, the bits of each
+ * term are only counted per byte; the byte counts are weighted and added up
+ * (a byte can not overflow, as it counts at most 8 pieces) and the bytes of
+ * the total are summed once for each player. Positions left over at the end
+ * of a batch are evaluated one at a time.
+ *
+ * This class needs the jdk.incubator.vector module, both to compile and to
+ * run, so it is kept out of the main source root (see BatchEvaluator for
+ * how to compile it); BatchEvaluator.create only loads it if it is enabled
+ * and the module is available.
+ *
+ * @author 090010514
+ */
+public class VectorBatchEvaluator extends BatchEvaluator {
+	private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+	@Override
+	public void evaluate(PositionBatch batch, int[] scores) {
+		int size = batch.size();
+		int bound = SPECIES.loopBound(size);
+		long[] lanes = new long[SPECIES.length()];
+		for (int i = 0; i < bound; i += SPECIES.length()) {
+			LongVector own = LongVector.fromArray(SPECIES, batch.own, i);
+			LongVector opponent = LongVector.fromArray(SPECIES,
+					batch.opponent, i);
+			LongVector kings = LongVector.fromArray(SPECIES, batch.kings, i);
+			LongVector above = LongVector.fromArray(SPECIES,
+					batch.aboveToMove, i);
+			LongVector empty = own.or(opponent).not();
+			LongVector down = opponent.lanewise(VectorOperators.LSHR, 7).and(
+					empty.lanewise(VectorOperators.LSHR, 14)).and(COL_MIN_2)
+					.or(opponent.lanewise(VectorOperators.LSHR, 9).and(
+							empty.lanewise(VectorOperators.LSHR, 18)).and(
+							COL_MAX_5));
+			LongVector up = opponent.lanewise(VectorOperators.LSHL, 9).and(
+					empty.lanewise(VectorOperators.LSHL, 18)).and(COL_MIN_2)
+					.or(opponent.lanewise(VectorOperators.LSHL, 7).and(
+							empty.lanewise(VectorOperators.LSHL, 14)).and(
+							COL_MAX_5));
+			LongVector ownKings = own.and(kings);
+			LongVector ownMen = own.and(kings.not());
+			LongVector capturers = ownKings.or(ownMen.and(above)).and(down)
+					.or(ownKings.or(ownMen.and(above.not())).and(up));
+			LongVector ownCounts = side(own, kings).add(
+					byteCounts(capturers).mul(CAPTURE_VALUE));
+			LongVector score = sumBytes(ownCounts).sub(
+					sumBytes(side(opponent, kings)));
+			score.intoArray(lanes, 0);
+			for (int lane = 0; lane < lanes.length; lane++)
+				scores[i + lane] = (int) lanes[lane];
+		}
+		evaluate(batch, scores, bound, size);
+	}
+
+	/**
+	 * The positional and material value of a set of pieces, per byte of each
+	 * lane.
+	 */
+	private static LongVector side(LongVector pieces, LongVector kings) {
+		return byteCounts(pieces).mul(1 + MAN_VALUE)
+				.add(byteCounts(pieces.and(VALUE_2)))
+				.add(byteCounts(pieces.and(VALUE_3)))
+				.add(byteCounts(pieces.and(VALUE_4)))
+				.add(byteCounts(pieces.and(kings)).mul(KING_VALUE - MAN_VALUE));
+	}
+
+	/**
+	 * Count the bits set in each byte of each lane.
+	 */
+	private static LongVector byteCounts(LongVector x) {
+		x = x.sub(x.lanewise(VectorOperators.LSHR, 1).and(0x5555555555555555L));
+		x = x.and(0x3333333333333333L).add(
+				x.lanewise(VectorOperators.LSHR, 2).and(0x3333333333333333L));
+		return x.add(x.lanewise(VectorOperators.LSHR, 4)).and(
+				0x0F0F0F0F0F0F0F0FL);
+	}
+
+	/**
+	 * Add up the bytes of each lane, in 16-bit fields so no sum overflows.
+	 */
+	private static LongVector sumBytes(LongVector x) {
+		x = x.and(0x00FF00FF00FF00FFL).add(
+				x.lanewise(VectorOperators.LSHR, 8).and(0x00FF00FF00FF00FFL));
+		x = x.add(x.lanewise(VectorOperators.LSHR, 16));
+		x = x.add(x.lanewise(VectorOperators.LSHR, 32));
+		return x.and(0xFFFF);
+	}
+}